@@ -0,0 +1,188 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import javalib.worldimages.FromFileImage;
+import javax.imageio.ImageIO;
+import seamcarving.jmh.Pipeline;
+
+// the benchmarks' way into the carver, which only code in the default package
+// can use; public so that Pipeline.create can make one by name
+public class GridPipeline implements Pipeline {
+  // the input this pipeline was opened from, and the image file it names or
+  // was written to
+  String input;
+  File file;
+  // the input decoded once, for retrievePixels
+  FromFileImage image;
+  Grid grid;
+  // draws the grid as the editor does
+  GridImages images = new GridImages();
+
+  // constructor for GridPipeline, with nothing open
+  public GridPipeline() {
+  }
+
+  // opens the given input as a fresh grid, writing synthetic inputs to a
+  // temporary PNG so that they can be loaded like files
+  public void open(String input) throws IOException {
+    this.input = input;
+    if (input.startsWith("synthetic:")) {
+      String[] size = input.substring("synthetic:".length()).split("x");
+      int width = Integer.parseInt(size[0]);
+      int height = Integer.parseInt(size[1]);
+      BufferedImage written = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      written.setRGB(0, 0, width, height,
+          new Benchmarks().syntheticColors(width, height, 1), 0, width);
+      this.file = File.createTempFile("synthetic", ".png");
+      this.file.deleteOnExit();
+      ImageIO.write(written, "png", this.file);
+    }
+    else {
+      this.file = new File(input);
+    }
+    this.image = new FromFileImage(this.file.getPath());
+    this.grid = new ImageLoader().load(this.file);
+  }
+
+  // returns a new pipeline on a copy of the open grid
+  public Pipeline copy() {
+    GridPipeline copy = new GridPipeline();
+    copy.input = this.input;
+    copy.file = this.file;
+    copy.image = this.image;
+    copy.grid = this.grid.copy();
+    return copy;
+  }
+
+  // returns the width of the grid
+  public int width() {
+    return this.grid.width;
+  }
+
+  // returns the height of the grid
+  public int height() {
+    return this.grid.height;
+  }
+
+  // reads the decoded input into rows of linked pixels
+  public Object retrievePixels() {
+    ArrayList<ArrayList<Pixel>> pixels = new ArrayList<ArrayList<Pixel>>();
+    new GridUtils().retrievePixels(pixels, this.image);
+    return pixels;
+  }
+
+  // decodes the input's file into packed colors
+  public Object load() throws IOException {
+    return new ImageLoader().read(this.file);
+  }
+
+  // computes the energy of every pixel with the named function from now on
+  public void useEnergy(String name) {
+    this.grid.useEnergy(new Retarget().parseEnergy(name));
+  }
+
+  // computes the energy of every pixel
+  public void initializeEnergy() {
+    this.grid.initializeEnergy();
+  }
+
+  // recomputes the energy around the cheapest seam in the given direction
+  public void updateEnergyAround(boolean isHorizontal) {
+    this.grid.updateEnergyAround(this.grid.planSeam(isHorizontal).seam);
+  }
+
+  // accumulates the seam table in the given direction from scratch
+  public Object findSeams(boolean isHorizontal) {
+    this.grid.accumulated = "";
+    if (isHorizontal) {
+      return this.grid.findHorizontalSeams();
+    }
+    return this.grid.findVerticalSeams();
+  }
+
+  // removes the cheapest seam in the given direction
+  public void removeSeam(boolean isHorizontal) {
+    if (isHorizontal) {
+      this.grid.removeSeamHorizontal();
+    }
+    else {
+      this.grid.removeSeamVertical();
+    }
+  }
+
+  // costs seams by forward or backward energy
+  public void useForwardEnergy(boolean forward) {
+    this.grid.useForwardEnergy(forward);
+  }
+
+  // finds seams coarse to fine with the given block size and band width, or
+  // exactly if the block size is 0
+  public void usePyramid(int blockSize, int band) {
+    if (blockSize == 0) {
+      this.grid.usePyramid(null);
+    }
+    else {
+      this.grid.usePyramid(new PyramidSearch(blockSize, band, false));
+    }
+  }
+
+  // carves vertical seams off the input's file the named way, as Retarget
+  // does, and saves the result
+  public void carveFile(String way, int count, File output) throws IOException {
+    if (way.equals("mapped")) {
+      MappedCarver carver = new MappedCarver();
+      try {
+        carver.load(this.file);
+        carver.carveTo(carver.width - count, carver.height);
+        carver.save(output);
+      }
+      finally {
+        carver.close();
+      }
+    }
+    else {
+      Retarget retarget = new Retarget();
+      Grid carved = retarget.load(this.file);
+      carved.carveTo(carved.width - count, carved.height);
+      retarget.save(carved, output);
+    }
+  }
+
+  // puts back the last seam removed, with reinsert, and takes it off the
+  // journal
+  public void reinsert() {
+    this.grid.undo();
+  }
+
+  // highlights the cheapest seam in the given direction
+  public void highlight(boolean isHorizontal) {
+    this.grid.highlightSeam(isHorizontal);
+  }
+
+  // clears the highlighted seam
+  public void clearHighlight() {
+    this.grid.clearHighlight();
+  }
+
+  // renders the grid as a new image
+  public Object render() {
+    return this.images.render(this.grid);
+  }
+
+  // renders the energy as a new image
+  public Object renderGreyScale() {
+    return this.images.renderGreyScale(this.grid);
+  }
+
+  // renders the seam weights as a new image
+  public Object renderSeams() {
+    return this.images.renderSeams(this.grid);
+  }
+
+  // draws the given layer into the kept frame
+  public Object renderFrame(String layer) {
+    return this.images.renderFrame(this.grid, layer);
+  }
+
+}
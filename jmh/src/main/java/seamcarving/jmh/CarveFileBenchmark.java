@@ -0,0 +1,64 @@
+package seamcarving.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times carving vertical seams off an image file and saving the result, as
+// Retarget does, through a Grid on the heap and through memory-mapped files
+// each operation loads, carves and saves, so it is timed one at a time
+// the heap each way needs is reported by Benchmarks mapped
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CarveFileBenchmark {
+  // the image carved, run from the repository's root so images/ is found
+  @Param({ "synthetic:1920x1080", "synthetic:3840x2160", "images/balloons.jpg" })
+  public String input;
+
+  // "grid" or "mapped"
+  @Param({ "grid", "mapped" })
+  public String way;
+
+  // how many vertical seams are carved off
+  @Param({ "50" })
+  public int count;
+
+  Pipeline pipeline;
+  File output;
+
+  // opens the input, and makes the file the result is saved to
+  @Setup
+  public void open() throws IOException {
+    this.pipeline = Pipeline.create();
+    this.pipeline.open(this.input);
+    this.output = File.createTempFile("carved", ".png");
+  }
+
+  // deletes the saved result
+  @TearDown
+  public void close() {
+    this.output.delete();
+  }
+
+  // loads, carves and saves the image
+  @Benchmark
+  public void carveFile() throws IOException {
+    this.pipeline.carveFile(this.way, this.count, this.output);
+  }
+}
@@ -0,0 +1,69 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times computing the energy of a whole grid with each energy function, and
+// around one seam, and accumulating its seam table from scratch in each
+// direction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EnergyBenchmark {
+  // the image carved, run from the repository's root so images/ is found
+  @Param({ "synthetic:640x360", "synthetic:1920x1080", "synthetic:3840x2160",
+      "images/balloons.jpg", "images/hi.jpeg" })
+  public String input;
+
+  // the energy function
+  @Param({ "sobel", "dual", "scharr", "int" })
+  public String energy;
+
+  Pipeline pipeline;
+
+  // opens the input, computing its energy with the energy function
+  @Setup
+  public void open() throws IOException {
+    this.pipeline = Pipeline.create();
+    this.pipeline.open(this.input);
+    this.pipeline.useEnergy(this.energy);
+  }
+
+  // computes the energy of every pixel
+  @Benchmark
+  public void initializeEnergy() {
+    this.pipeline.initializeEnergy();
+  }
+
+  // recomputes the energy around the cheapest vertical seam
+  @Benchmark
+  public void updateEnergyAround() {
+    this.pipeline.updateEnergyAround(false);
+  }
+
+  // accumulates the table of vertical seams
+  @Benchmark
+  public Object findVerticalSeams() {
+    return this.pipeline.findSeams(false);
+  }
+
+  // accumulates the table of horizontal seams
+  @Benchmark
+  public Object findHorizontalSeams() {
+    return this.pipeline.findSeams(true);
+  }
+}
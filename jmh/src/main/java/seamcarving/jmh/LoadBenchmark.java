@@ -0,0 +1,51 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times reading an image into the carver, as linked pixels from an image
+// javalib decoded and as packed colors straight from the file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoadBenchmark {
+  // the image read, run from the repository's root so images/ is found
+  @Param({ "synthetic:640x360", "synthetic:1920x1080", "synthetic:3840x2160",
+      "images/balloons.jpg", "images/hi.jpeg" })
+  public String input;
+
+  Pipeline pipeline;
+
+  // opens the input
+  @Setup
+  public void open() throws IOException {
+    this.pipeline = Pipeline.create();
+    this.pipeline.open(this.input);
+  }
+
+  // reads the image into rows of linked pixels
+  @Benchmark
+  public Object retrievePixels() {
+    return this.pipeline.retrievePixels();
+  }
+
+  // decodes the file into packed colors
+  @Benchmark
+  public Object imageLoader() throws IOException {
+    return this.pipeline.load();
+  }
+}
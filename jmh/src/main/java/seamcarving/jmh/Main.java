@@ -0,0 +1,31 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// runs the benchmarks named on the command line, or all of them, taking the
+// usual JMH options, with the GC profiler always on so that every result
+// comes with its allocation rate
+// run as: java -jar jmh/target/benchmarks.jar [JMH options] [benchmark regex]
+public class Main {
+
+  // runs the benchmarks
+  public static void main(String[] args)
+      throws RunnerException, CommandLineOptionException, IOException {
+    CommandLineOptions options = new CommandLineOptions(args);
+    if (options.shouldHelp()) {
+      options.showHelp();
+      return;
+    }
+    if (options.shouldList()) {
+      new Runner(options).list();
+      return;
+    }
+    new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+  }
+}
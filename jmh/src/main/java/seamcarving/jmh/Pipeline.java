@@ -0,0 +1,89 @@
+package seamcarving.jmh;
+
+import java.io.File;
+import java.io.IOException;
+
+// the parts of the seam carving pipeline the benchmarks time, on one grid
+// the carver is in the default package, which no other package can name and
+// JMH will not generate benchmarks in, so the benchmarks reach it through
+// this interface, implemented in the default package by GridPipeline
+public interface Pipeline {
+
+  // opens the given input, "synthetic:<width>x<height>" for a generated image
+  // of that size or the path of an image file, as a fresh grid
+  void open(String input) throws IOException;
+
+  // returns a new pipeline on a copy of the open grid, sharing its input
+  Pipeline copy();
+
+  // returns the width and height of the grid
+  int width();
+
+  int height();
+
+  // reads the input into rows of linked pixels with GridUtils.retrievePixels,
+  // from an image decoded when the input was opened
+  Object retrievePixels();
+
+  // decodes the input's file into packed colors with ImageLoader
+  Object load() throws IOException;
+
+  // computes the energy of every pixel with the energy function of the given
+  // name from now on: "sobel", "dual", "scharr" or "int"
+  void useEnergy(String name);
+
+  // computes the energy of every pixel
+  void initializeEnergy();
+
+  // recomputes the energy of the pixels around the cheapest seam in the given
+  // direction, as removing it would
+  void updateEnergyAround(boolean isHorizontal);
+
+  // accumulates the seam table in the given direction from scratch, and
+  // returns the weights of its last row or column
+  Object findSeams(boolean isHorizontal);
+
+  // removes the cheapest seam in the given direction
+  void removeSeam(boolean isHorizontal);
+
+  // costs seams by the forward energy of the edges their removal makes, or
+  // by the energy of the pixels they remove
+  void useForwardEnergy(boolean forward);
+
+  // finds seams coarse to fine, with blocks of the given size and a band of
+  // the given width around the coarse seam, or exactly if the size is 0
+  void usePyramid(int blockSize, int band);
+
+  // carves the given number of vertical seams off the input's file the named
+  // way, "grid" through a Grid or "mapped" through memory-mapped files, and
+  // saves the result to the given file
+  void carveFile(String way, int count, File output) throws IOException;
+
+  // puts back the last seam removed
+  void reinsert();
+
+  // highlights the cheapest seam in the given direction, or clears it
+  void highlight(boolean isHorizontal);
+
+  void clearHighlight();
+
+  // renders the grid, its energy, or its seam weights as a new image
+  Object render();
+
+  Object renderGreyScale();
+
+  Object renderSeams();
+
+  // draws the given layer into the kept frame, repainting what changed
+  Object renderFrame(String layer);
+
+  // creates the pipeline over the carver
+  static Pipeline create() {
+    try {
+      return (Pipeline) Class.forName("GridPipeline").getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("cannot find the carver", e);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times removing seams one at a time and putting them back, as the editor
+// does, each keeping the energy and seam table up to date
+// every removal shrinks the grid, so each iteration starts from a fresh copy
+// and times a batch of single calls, reported as the time for the batch
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, batchSize = RemovalBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = RemovalBenchmark.BATCH)
+public class RemovalBenchmark {
+  // how many seams each iteration removes or puts back
+  static final int BATCH = 50;
+
+  // the image carved, opened once and copied for each iteration
+  @State(Scope.Benchmark)
+  public static class Input {
+    // run from the repository's root so images/ is found
+    @Param({ "synthetic:640x360", "synthetic:1920x1080", "synthetic:3840x2160",
+        "images/balloons.jpg", "images/hi.jpeg" })
+    public String input;
+
+    Pipeline pipeline;
+
+    // opens the input, with its seam tables ready as the editor has them
+    @Setup
+    public void open() throws IOException {
+      this.pipeline = Pipeline.create();
+      this.pipeline.open(this.input);
+    }
+  }
+
+  // a fresh copy of the input for each iteration
+  @State(Scope.Thread)
+  public static class Fresh {
+    Pipeline pipeline;
+
+    // copies the input
+    @Setup(Level.Iteration)
+    public void copy(Input input) {
+      this.pipeline = input.pipeline.copy();
+    }
+  }
+
+  // a copy of the input with a batch of seams removed, alternating
+  // directions, for each iteration
+  @State(Scope.Thread)
+  public static class Carved {
+    Pipeline pipeline;
+
+    // copies the input and removes the seams
+    @Setup(Level.Iteration)
+    public void carve(Input input) {
+      this.pipeline = input.pipeline.copy();
+      // Loops through each seam to remove
+      for (int i = 0; i < BATCH; i += 1) {
+        this.pipeline.removeSeam(i % 2 == 1);
+      }
+    }
+  }
+
+  // removes one vertical seam
+  @Benchmark
+  public void removeSeamVertical(Fresh fresh) {
+    fresh.pipeline.removeSeam(false);
+  }
+
+  // removes one horizontal seam
+  @Benchmark
+  public void removeSeamHorizontal(Fresh fresh) {
+    fresh.pipeline.removeSeam(true);
+  }
+
+  // puts back the last seam removed
+  @Benchmark
+  public void reinsert(Carved carved) {
+    carved.pipeline.reinsert();
+  }
+}
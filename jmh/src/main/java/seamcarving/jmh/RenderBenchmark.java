@@ -0,0 +1,77 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times drawing a grid, its energy and its seam weights as a new image each
+// time, and drawing the editor's frame as a seam is highlighted and cleared
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RenderBenchmark {
+  // the image drawn, run from the repository's root so images/ is found
+  @Param({ "synthetic:640x360", "synthetic:1920x1080", "synthetic:3840x2160",
+      "images/balloons.jpg", "images/hi.jpeg" })
+  public String input;
+
+  Pipeline pipeline;
+  // whether the next frame highlights the seam rather than clearing it
+  boolean highlight;
+
+  // opens the input, with its vertical seam table accumulated and every
+  // layer of its frame drawn once
+  @Setup
+  public void open() throws IOException {
+    this.pipeline = Pipeline.create();
+    this.pipeline.open(this.input);
+    this.pipeline.findSeams(false);
+    this.pipeline.renderFrame("colors");
+    this.pipeline.renderFrame("energy");
+    this.pipeline.renderFrame("seams");
+  }
+
+  // renders the colors as a new image
+  @Benchmark
+  public Object render() {
+    return this.pipeline.render();
+  }
+
+  // renders the energy as a new image
+  @Benchmark
+  public Object renderGreyScale() {
+    return this.pipeline.renderGreyScale();
+  }
+
+  // renders the seam weights as a new image
+  @Benchmark
+  public Object renderSeams() {
+    return this.pipeline.renderSeams();
+  }
+
+  // highlights or clears the cheapest seam and draws the kept frame
+  @Benchmark
+  public Object renderFrame() {
+    if (this.highlight) {
+      this.pipeline.highlight(false);
+    }
+    else {
+      this.pipeline.clearHighlight();
+    }
+    this.highlight = !this.highlight;
+    return this.pipeline.renderFrame("colors");
+  }
+}
@@ -0,0 +1,82 @@
+package seamcarving.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// times removing vertical seams costed by backward and by forward energy,
+// and found exactly or coarse to fine with a few block sizes and band widths
+// every removal shrinks the grid, so each iteration starts from a fresh copy
+// and times a batch of single removals, reported as the time for the batch
+// the quality each way gives up is reported by Benchmarks forward and
+// Benchmarks pyramid
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, batchSize = SeamCostBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = SeamCostBenchmark.BATCH)
+public class SeamCostBenchmark {
+  // how many seams each iteration removes
+  static final int BATCH = 50;
+
+  // the image carved, opened once and copied for each iteration
+  @State(Scope.Benchmark)
+  public static class Input {
+    // run from the repository's root so images/ is found
+    @Param({ "synthetic:1920x1080", "synthetic:3840x2160", "images/balloons.jpg" })
+    public String input;
+
+    Pipeline pipeline;
+
+    // opens the input
+    @Setup
+    public void open() throws IOException {
+      this.pipeline = Pipeline.create();
+      this.pipeline.open(this.input);
+    }
+  }
+
+  // a fresh copy of the input for each iteration, costing seams and finding
+  // them the way the parameters name
+  @State(Scope.Thread)
+  public static class Fresh {
+    // "backward" or "forward" energy
+    @Param({ "backward", "forward" })
+    public String cost;
+
+    // "exact", or "<block size>x<band width>" for the pyramid search, which
+    // only backward energy uses
+    @Param({ "exact", "4x4", "8x8", "8x16", "16x16" })
+    public String search;
+
+    Pipeline pipeline;
+
+    // copies the input and sets it up
+    @Setup(Level.Iteration)
+    public void copy(Input input) {
+      this.pipeline = input.pipeline.copy();
+      this.pipeline.useForwardEnergy(this.cost.equals("forward"));
+      if (!this.search.equals("exact")) {
+        String[] sizes = this.search.split("x");
+        this.pipeline.usePyramid(Integer.parseInt(sizes[0]), Integer.parseInt(sizes[1]));
+      }
+    }
+  }
+
+  // removes one vertical seam
+  @Benchmark
+  public void removeSeamVertical(Fresh fresh) {
+    fresh.pipeline.removeSeam(false);
+  }
+}
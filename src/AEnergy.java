@@ -0,0 +1,90 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// an energy function over a 3x3 neighborhood, computing the rows of a large
+// grid in parallel bands
+// the pixels on the edge of the grid are computed on their own, and the rest
+// of each row in an unchecked inner loop, which must give the same energy as
+// computing each pixel on its own, so that a partial update always agrees
+// with a full pass
+abstract class AEnergy implements IEnergy {
+  // bands of at least this many pixels are split across the fork-join pool
+  int parallelThreshold;
+
+  // constructor for AEnergy
+  AEnergy() {
+    this.parallelThreshold = 1 << 16;
+  }
+
+  // computes the energy of every pixel of the grid, in parallel bands of rows
+  // when it is large enough
+  public void computeAll(Grid grid) {
+    if (grid.width * grid.height < this.parallelThreshold) {
+      this.computeRows(grid, 0, grid.height);
+    }
+    else {
+      ForkJoinPool.commonPool().invoke(new EnergyBand(this, grid, 0, grid.height));
+    }
+  }
+
+  // computes the energy of every pixel in the rows from (inclusive) to
+  // (exclusive)
+  public void computeRows(Grid grid, int from, int to) {
+    int width = grid.width;
+    // Loops through each row of the band
+    for (int row = from; row < to; row += 1) {
+      if (row == 0 || row == grid.height - 1 || width < 3) {
+        // Loops through each pixel of an edge row
+        for (int col = 0; col < width; col += 1) {
+          grid.energy[grid.index(row, col)] = this.computeAt(grid, row, col);
+        }
+      }
+      else {
+        grid.energy[grid.index(row, 0)] = this.computeAt(grid, row, 0);
+        this.computeInside(grid, row);
+        grid.energy[grid.index(row, width - 1)] = this.computeAt(grid, row, width - 1);
+      }
+    }
+  }
+
+  // computes the energy of every pixel of the given row but the first and the
+  // last, where the row is neither the first nor the last, so every neighbor
+  // exists
+  abstract void computeInside(Grid grid, int row);
+
+}
+
+// computes the energy of a band of rows of a Grid, splitting it in half until
+// it is small enough to do directly
+class EnergyBand extends RecursiveAction {
+  // never serialized, but a RecursiveAction is Serializable
+  static final long serialVersionUID = 1L;
+
+  AEnergy function;
+  Grid grid;
+  int from;
+  int to;
+
+  // constructor for EnergyBand, covering rows from (inclusive) to (exclusive)
+  EnergyBand(AEnergy function, Grid grid, int from, int to) {
+    this.function = function;
+    this.grid = grid;
+    this.from = from;
+    this.to = to;
+  }
+
+  // computes this band, forking halves if it has at least the threshold of
+  // pixels and more than one row
+  protected void compute() {
+    if ((this.to - this.from) * this.grid.width < this.function.parallelThreshold
+        || this.to - this.from < 2) {
+      this.function.computeRows(this.grid, this.from, this.to);
+    }
+    else {
+      int middle = (this.from + this.to) / 2;
+      invokeAll(new EnergyBand(this.function, this.grid, this.from, middle),
+          new EnergyBand(this.function, this.grid, middle, this.to));
+    }
+  }
+
+}
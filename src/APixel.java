@@ -0,0 +1,21 @@
+import java.awt.Color;
+
+// abstract class representing APixel
+abstract class APixel implements IPixel {
+  Color color;
+  APixel left;
+  APixel right;
+  APixel top;
+  APixel bottom;
+  double brightness;
+
+  // constructor for APixel
+  APixel(Color color, APixel left, APixel right, APixel top, APixel bottom) {
+    this.color = color;
+    this.left = left;
+    this.right = right;
+    this.top = top;
+    this.bottom = bottom;
+    this.brightness = ((color.getRed() + color.getBlue() + color.getGreen()) / 3.0) / 255.0;
+  }
+}
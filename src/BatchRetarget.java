@@ -0,0 +1,269 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+// carves many images at once on a fixed pool of workers
+// run as: java BatchRetarget <input-dir> <output-dir> <width>x<height> [workers]
+//     or: java BatchRetarget <manifest> <output-dir> [workers]
+// where each manifest line is "<input> <width> <height> [sobel|dual|scharr|int]",
+// the last naming the energy function that image is carved by
+class BatchRetarget {
+  // rough bytes held per pixel while a job runs: the decoded image, its colors
+  // copied into the grid, the grid's other arrays, and the image written out
+  static final int BYTES_PER_PIXEL = 32;
+
+  int workers;
+  // memory that jobs may use between them, in kilobytes
+  int budgetKb;
+  // permits for the memory budget, so that only as many decoded images as fit
+  // are resident at once, handed out first come first served, so that a
+  // large image waiting for many permits is not passed over forever by small
+  // ones that each need few
+  Semaphore resident;
+
+  // constructor for BatchRetarget, using the given number of workers and
+  // memory budget in bytes
+  BatchRetarget(int workers, long budget) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("need at least one worker");
+    }
+    this.workers = workers;
+    this.budgetKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget / 1024));
+    this.resident = new Semaphore(this.budgetKb, true);
+  }
+
+  // carves the jobs described by the arguments and prints how each went
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 2 || args.length > 4) {
+      System.err.println("usage: java BatchRetarget <input-dir> <output-dir> <width>x<height>"
+          + " [workers]\n   or: java BatchRetarget <manifest> <output-dir> [workers]");
+      System.exit(2);
+    }
+    File source = new File(args[0]);
+    File outputDir = new File(args[1]);
+    // the worker count follows the size for a directory, and the output
+    // directory for a manifest
+    int next = 2;
+    if (source.isDirectory()) {
+      next = 3;
+    }
+    int workers = Runtime.getRuntime().availableProcessors();
+    if (args.length > next) {
+      workers = Integer.parseInt(args[next]);
+    }
+    BatchRetarget batch = new BatchRetarget(workers, Runtime.getRuntime().maxMemory() / 4 * 3);
+    ArrayList<RetargetJob> jobs;
+    if (source.isDirectory()) {
+      int[] size = new Retarget().parseSize(args[2]);
+      jobs = batch.directoryJobs(source, outputDir, size[0], size[1]);
+    }
+    else {
+      jobs = batch.manifestJobs(source, outputDir);
+    }
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new IOException("cannot create " + outputDir);
+    }
+
+    System.out.printf("%d jobs on %d workers with %d MB for images%n", jobs.size(), batch.workers,
+        batch.budgetKb / 1024);
+    long start = System.nanoTime();
+    ArrayList<RetargetJob> done = batch.runAll(jobs);
+    int failed = 0;
+    // Loops through each job and counts the failures
+    for (RetargetJob job : done) {
+      if (job.error != null) {
+        failed += 1;
+      }
+    }
+    System.out.printf("%d done, %d failed in %.1f s%n", done.size() - failed, failed,
+        (System.nanoTime() - start) / 1e9);
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+
+  // returns a job for every image in the given directory, writing into the
+  // output directory under the same name
+  ArrayList<RetargetJob> directoryJobs(File inputDir, File outputDir, int width, int height) {
+    ArrayList<RetargetJob> jobs = new ArrayList<RetargetJob>();
+    File[] files = inputDir.listFiles();
+    if (files == null) {
+      throw new IllegalArgumentException("cannot list " + inputDir);
+    }
+    Arrays.sort(files);
+    // Loops through each file, keeping the ones that look like images
+    for (File file : files) {
+      String name = file.getName().toLowerCase();
+      if (file.isFile() && (name.endsWith(".jpg") || name.endsWith(".jpeg")
+          || name.endsWith(".png") || name.endsWith(".bmp") || name.endsWith(".gif"))) {
+        jobs.add(new RetargetJob(file, new File(outputDir, file.getName()), width, height));
+      }
+    }
+    return jobs;
+  }
+
+  // returns the jobs listed in the given manifest, one "<input> <width> <height>"
+  // and optionally an energy function per line, where blank lines and lines
+  // starting with # are skipped and relative inputs are relative to the
+  // manifest
+  ArrayList<RetargetJob> manifestJobs(File manifest, File outputDir) throws IOException {
+    ArrayList<RetargetJob> jobs = new ArrayList<RetargetJob>();
+    BufferedReader reader = new BufferedReader(new FileReader(manifest));
+    try {
+      int lineNumber = 0;
+      // Loops through each line of the manifest
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        lineNumber += 1;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        jobs.add(this.parseJob(line, manifest.getAbsoluteFile().getParentFile(), outputDir,
+            lineNumber));
+      }
+    }
+    finally {
+      reader.close();
+    }
+    return jobs;
+  }
+
+  // returns the job described by one manifest line
+  RetargetJob parseJob(String line, File baseDir, File outputDir, int lineNumber) {
+    String[] parts = line.split("[\\s,]+");
+    if (parts.length != 3 && parts.length != 4) {
+      throw new IllegalArgumentException(
+          "line " + lineNumber + ": expected <input> <width> <height>");
+    }
+    File input = new File(parts[0]);
+    if (!input.isAbsolute()) {
+      input = new File(baseDir, parts[0]);
+    }
+    RetargetJob job;
+    try {
+      job = new RetargetJob(input, new File(outputDir, input.getName()),
+          Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "line " + lineNumber + ": expected <input> <width> <height>");
+    }
+    if (parts.length == 4) {
+      try {
+        job.energy = new Retarget().parseEnergy(parts[3]).name();
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage());
+      }
+    }
+    return job;
+  }
+
+  // returns how many kilobytes of the budget the given job needs, from its
+  // image's size read from the header without decoding it, or from its target
+  // size where that is larger
+  int estimateKb(RetargetJob job) throws IOException {
+    File input = job.input;
+    ImageInputStream stream = ImageIO.createImageInputStream(input);
+    if (stream == null) {
+      throw new IOException("cannot open " + input);
+    }
+    try {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("cannot decode " + input);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        long bytes = (long) Math.max(reader.getWidth(0), job.width)
+            * Math.max(reader.getHeight(0), job.height) * BYTES_PER_PIXEL;
+        return (int) Math.min(this.budgetKb, Math.max(1, bytes / 1024));
+      }
+      finally {
+        reader.dispose();
+      }
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  // runs one job, waiting until its image fits in the memory budget before
+  // decoding it, and records how long each step took
+  RetargetJob runJob(RetargetJob job) {
+    Retarget retarget = new Retarget();
+    retarget.energy = retarget.parseEnergy(job.energy);
+    long start = System.nanoTime();
+    try {
+      int kb = this.estimateKb(job);
+      this.resident.acquire(kb);
+      try {
+        job.waitNanos = System.nanoTime() - start;
+        long step = System.nanoTime();
+        Grid grid = retarget.load(job.input);
+        job.loadNanos = System.nanoTime() - step;
+        step = System.nanoTime();
+        retarget.carve(grid, job.width, job.height, "columns");
+        job.carveNanos = System.nanoTime() - step;
+        step = System.nanoTime();
+        retarget.save(grid, job.output);
+        job.saveNanos = System.nanoTime() - step;
+      }
+      finally {
+        this.resident.release(kb);
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      job.error = e;
+    }
+    catch (InterruptedException e) {
+      job.error = e;
+      Thread.currentThread().interrupt();
+    }
+    job.totalNanos = System.nanoTime() - start;
+    synchronized (System.out) {
+      System.out.println(job.report());
+    }
+    return job;
+  }
+
+  // runs every job on this batch's workers and returns them once all are done
+  ArrayList<RetargetJob> runAll(ArrayList<RetargetJob> jobs) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(this.workers);
+    ArrayList<Future<RetargetJob>> futures = new ArrayList<Future<RetargetJob>>();
+    try {
+      // Loops through each job and hands it to the pool
+      for (RetargetJob job : jobs) {
+        futures.add(pool.submit(() -> this.runJob(job)));
+      }
+      ArrayList<RetargetJob> done = new ArrayList<RetargetJob>();
+      // Loops through each job, waiting for it to finish
+      for (Future<RetargetJob> future : futures) {
+        try {
+          done.add(future.get());
+        }
+        catch (ExecutionException e) {
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return done;
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+}
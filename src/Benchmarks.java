@@ -0,0 +1,847 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import javalib.worldimages.FromFileImage;
+
+// times parts of the seam carving pipeline on synthetic images
+// run as: java Benchmarks <benchmark> [width height count]
+class Benchmarks {
+
+  // runs the benchmark named by the first argument
+  public static void main(String[] args) throws IOException {
+    String name = "seams";
+    if (args.length > 0) {
+      name = args[0];
+    }
+    int width = 3840;
+    int height = 2160;
+    int count = 500;
+    if (args.length > 3) {
+      width = Integer.parseInt(args[1]);
+      height = Integer.parseInt(args[2]);
+      count = Integer.parseInt(args[3]);
+    }
+
+    Benchmarks bench = new Benchmarks();
+    if (name.equals("seams")) {
+      bench.benchIncrementalSeams(width, height, count);
+    }
+    else if (name.equals("engines")) {
+      bench.benchSeamEngines(width, height, count);
+    }
+    else if (name.equals("energy")) {
+      bench.benchEnergy(width, height, count);
+    }
+    else if (name.equals("energies")) {
+      bench.benchEnergyFunctions(width, height, count);
+    }
+    else if (name.equals("journal")) {
+      bench.benchJournal(width, height, count);
+    }
+    else if (name.equals("history")) {
+      bench.benchHistory(width, height, count);
+    }
+    else if (name.equals("index")) {
+      bench.benchSeamIndex(width, height, count);
+    }
+    else if (name.equals("load")) {
+      bench.benchLoad(width, height, count);
+    }
+    else if (name.equals("render")) {
+      bench.benchRender(width, height, count);
+    }
+    else if (name.equals("views")) {
+      bench.benchViews(width, height, count);
+    }
+    else if (name.equals("worker")) {
+      bench.benchWorker(width, height, count);
+    }
+    else if (name.equals("forward")) {
+      bench.benchForwardEnergy(width, height, count);
+    }
+    else if (name.equals("mask")) {
+      bench.benchMask(width, height, count);
+    }
+    else if (name.equals("pyramid")) {
+      bench.benchPyramid(width, height, count);
+    }
+    else if (name.equals("multi")) {
+      bench.benchSeamsPerPass(width, height, count);
+    }
+    else if (name.equals("order")) {
+      bench.benchCarveOrder(width, height, count);
+    }
+    else if (name.equals("mapped")) {
+      bench.benchMapped(width, height, count);
+    }
+    else if (name.equals("large")) {
+      bench.benchLargeSeam(width, height, count);
+    }
+    else {
+      throw new IllegalArgumentException("unknown benchmark " + name);
+    }
+  }
+
+  // returns a grid of the given size with smooth gradients, edges and noise,
+  // so that seams have something to avoid
+  Grid syntheticGrid(int width, int height, long seed) {
+    return new Grid(this.syntheticColors(width, height, seed), width, height);
+  }
+
+  // returns the colors of the grid syntheticGrid makes, row by row
+  int[] syntheticColors(int width, int height, long seed) {
+    Random rand = new Random(seed);
+    int[] colors = new int[width * height];
+    // Loops through each pixel and picks its color
+    for (int row = 0; row < height; row += 1) {
+      for (int col = 0; col < width; col += 1) {
+        int red = (int) (127 + 120 * Math.sin(col / 37.0) * Math.cos(row / 53.0));
+        int green = (col * 7 + row * 3) / 16 % 256;
+        int blue = rand.nextInt(32);
+        if ((col / 97 + row / 61) % 5 == 0) {
+          blue += 200;
+        }
+        colors[row * width + col] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+      }
+    }
+    return colors;
+  }
+
+  // prints how long the given number of nanoseconds is per operation
+  void report(String label, long nanos, int ops) {
+    System.out.printf("%-40s %10.3f ms/op  (%d ops, %.1f ms total)%n", label,
+        nanos / 1e6 / ops, ops, nanos / 1e6);
+  }
+
+  // removes the given number of vertical seams, either recomputing the seam
+  // table from scratch each time or updating it incrementally, and returns the
+  // nanoseconds taken
+  long removeSeams(Grid grid, int count, boolean incremental) {
+    long start = System.nanoTime();
+    // Loops through each seam to remove
+    for (int i = 0; i < count; i += 1) {
+      if (!incremental) {
+        grid.accumulated = "";
+      }
+      grid.removeSeamVertical();
+    }
+    return System.nanoTime() - start;
+  }
+
+  // prints how many megapixels per second the given nanoseconds come to
+  void reportRate(String label, long nanos, int ops, long pixels) {
+    System.out.printf("%-40s %10.1f MP/s  (%.3f ms/op)%n", label,
+        pixels * (double) ops / (nanos / 1e9) / 1e6, nanos / 1e6 / ops);
+  }
+
+  // compares the energy pass over the linked pixels, one pixel at a time over
+  // the grid, and the sobel kernel on one thread and across the pool
+  void benchEnergy(int width, int height, int count) {
+    System.out.println("computing the energy of " + width + "x" + height);
+    long pixels = (long) width * height;
+    Grid grid = this.syntheticGrid(width, height, 1);
+
+    ArrayList<ArrayList<Pixel>> linked = this.linkedPixels(grid);
+    long start = System.nanoTime();
+    // Loops through each pass over the linked pixels
+    for (int i = 0; i < count; i += 1) {
+      new GridUtils().initializeEnergy(linked);
+    }
+    this.reportRate("linked pixels", System.nanoTime() - start, count, pixels);
+    linked = null;
+
+    start = System.nanoTime();
+    // Loops through each pass computing one pixel at a time
+    for (int i = 0; i < count; i += 1) {
+      for (int row = 0; row < height; row += 1) {
+        for (int col = 0; col < width; col += 1) {
+          grid.energy[grid.index(row, col)] = grid.energyFunction.computeAt(grid, row, col);
+        }
+      }
+    }
+    this.reportRate("grid, one pixel at a time", System.nanoTime() - start, count, pixels);
+
+    start = System.nanoTime();
+    // Loops through each pass of the kernel on this thread
+    for (int i = 0; i < count; i += 1) {
+      grid.energyFunction.computeRows(grid, 0, height);
+    }
+    this.reportRate("sobel kernel, one thread", System.nanoTime() - start, count, pixels);
+
+    start = System.nanoTime();
+    // Loops through each pass of the kernel in parallel bands
+    for (int i = 0; i < count; i += 1) {
+      grid.energyFunction.computeAll(grid);
+    }
+    this.reportRate("sobel kernel, parallel bands", System.nanoTime() - start, count, pixels);
+  }
+
+  // removes the given number of vertical seams found coarse to fine with a
+  // few block sizes and band widths, and reports how often each missed the
+  // exact seam
+  // how long each takes is timed by SeamCostBenchmark in the JMH module
+  void benchPyramid(int width, int height, int count) {
+    System.out.println("removing " + count + " vertical seams from " + width + "x" + height);
+    int[][] settings = new int[][] { { 4, 4 }, { 8, 8 }, { 8, 16 }, { 16, 16 } };
+    // Loops through each block size and band width, comparing it
+    for (int[] setting : settings) {
+      Grid grid = this.syntheticGrid(width, height, 1);
+      PyramidSearch pyramid = new PyramidSearch(setting[0], setting[1], true);
+      grid.usePyramid(pyramid);
+      // Loops through each seam, removed once it is compared
+      for (int i = 0; i < count; i += 1) {
+        grid.removeSeamVertical();
+      }
+      System.out.println("pyramid " + setting[0] + "x" + setting[0] + ", band " + setting[1]
+          + ": " + pyramid.report());
+    }
+  }
+
+  // compares removing seams with and without a mask protecting the middle
+  // third of the grid, and reports how much memory the mask takes
+  void benchMask(int width, int height, int count) {
+    System.out.println("removing " + count + " vertical seams from " + width + "x" + height);
+    long plain = this.removeSeams(this.syntheticGrid(width, height, 1), count, true);
+    this.report("no mask", plain, count);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    grid.mask(0, width / 3, width / 3, height, "protect");
+    long masked = this.removeSeams(grid, count, true);
+    this.report("middle third protected", masked, count);
+    long maskBytes = 8L * (grid.mask.protect.length + grid.mask.remove.length);
+    long gridBytes = (long) grid.colors.length * (4 + 4 + 4 + 4 + 1 + 4);
+    System.out.printf("mask %.1f MB beside %.1f MB of grid arrays (%.1f%%)%n", maskBytes / 1e6,
+        gridBytes / 1e6, 100.0 * maskBytes / gridBytes);
+  }
+
+  // compares the energy functions a grid can be given: a full pass on one
+  // thread and across the pool, and the update around a removed seam
+  void benchEnergyFunctions(int width, int height, int count) {
+    System.out.println("computing the energy of " + width + "x" + height);
+    long pixels = (long) width * height;
+    Grid grid = this.syntheticGrid(width, height, 1);
+    Seam seam = grid.planSeam(false).seam;
+    IEnergy[] functions = new IEnergy[] { new SobelEnergy(), new DualGradientEnergy(),
+        new ScharrEnergy(), new IntSobelEnergy() };
+    // Loops through each function
+    for (IEnergy function : functions) {
+      grid.useEnergy(function);
+      long start = System.nanoTime();
+      // Loops through each pass on this thread
+      for (int i = 0; i < count; i += 1) {
+        function.computeRows(grid, 0, height);
+      }
+      this.reportRate(function.name() + ", one thread", System.nanoTime() - start, count,
+          pixels);
+
+      start = System.nanoTime();
+      // Loops through each pass in parallel bands
+      for (int i = 0; i < count; i += 1) {
+        function.computeAll(grid);
+      }
+      this.reportRate(function.name() + ", parallel bands", System.nanoTime() - start, count,
+          pixels);
+
+      start = System.nanoTime();
+      // Loops through each update around the seam
+      for (int i = 0; i < count; i += 1) {
+        grid.updateEnergyAround(seam);
+      }
+      this.report(function.name() + ", around one seam", System.nanoTime() - start, count);
+    }
+  }
+
+  // compares removing seams with a full seam table rebuild per seam against
+  // the incremental update
+  void benchIncrementalSeams(int width, int height, int count) {
+    System.out.println("removing " + count + " vertical seams from " + width + "x" + height);
+    long full = this.removeSeams(this.syntheticGrid(width, height, 1), count, false);
+    this.report("full seam table per seam", full, count);
+    long incremental = this.removeSeams(this.syntheticGrid(width, height, 1), count, true);
+    this.report("incremental seam table", incremental, count);
+    System.out.printf("speedup: %.2fx%n", (double) full / incremental);
+  }
+
+  // returns the rows of linked pixels with the same colors as the given grid
+  ArrayList<ArrayList<Pixel>> linkedPixels(Grid grid) {
+    APixel border = new BorderPixel();
+    ArrayList<ArrayList<Pixel>> pixels = new ArrayList<ArrayList<Pixel>>();
+    // Loops through each pixel of the grid and links up a copy of it
+    for (int row = 0; row < grid.height; row += 1) {
+      ArrayList<Pixel> line = new ArrayList<Pixel>();
+      for (int col = 0; col < grid.width; col += 1) {
+        line.add(new Pixel(new Color(grid.colors[grid.index(row, col)]), border, border, border,
+            border));
+      }
+      pixels.add(line);
+    }
+    new GridUtils().initRelation(pixels);
+    new GridUtils().initializeEnergy(pixels);
+    return pixels;
+  }
+
+  // returns the weight of the cheapest vertical seam through the linked pixels
+  double linkedMinSeam(ArrayList<ArrayList<Pixel>> pixels) {
+    new GridUtils().resetSeamInfo(pixels);
+    Pixel first = pixels.get(0).get(0);
+    ArrayList<SeamInfo> seams = first.bottom.accumulateSeamInfoBottom(
+        first.accumulateSeamInfoRight(new ArrayList<SeamInfo>(), true, 0));
+    double min = seams.get(0).totalWeight;
+    // Loops through each seam and updates minimum seam
+    for (SeamInfo s : seams) {
+      min = Math.min(min, s.totalWeight);
+    }
+    return min;
+  }
+
+  // compares a full vertical seam search over the linked pixels against the
+  // grid's loops over row and column indices, the given number of times each
+  void benchSeamEngines(int width, int height, int count) {
+    System.out.println("finding the cheapest vertical seam in " + width + "x" + height);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    ArrayList<ArrayList<Pixel>> pixels = this.linkedPixels(grid);
+
+    double linkedWeight = 0;
+    long start = System.nanoTime();
+    // Loops through each search over the linked pixels
+    for (int i = 0; i < count; i += 1) {
+      linkedWeight = this.linkedMinSeam(pixels);
+    }
+    long linked = System.nanoTime() - start;
+    this.report("linked pixels", linked, count);
+
+    double gridWeight = 0;
+    start = System.nanoTime();
+    // Loops through each search over the grid
+    for (int i = 0; i < count; i += 1) {
+      grid.accumulated = "";
+      gridWeight = grid.findMinSeam(false).totalWeight;
+    }
+    long flat = System.nanoTime() - start;
+    this.report("grid indices", flat, count);
+    System.out.printf("speedup: %.2fx, seam weights %.4f and %.4f%n", (double) linked / flat,
+        linkedWeight, gridWeight);
+  }
+
+  // removes the given number of seams, alternating direction, and prints how
+  // large the undo journal grew against the plain ints it would otherwise hold
+  // and how long undoing every seam took
+  void benchJournal(int width, int height, int count) {
+    System.out.println("journaling " + count + " seams of " + width + "x" + height);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    Runtime runtime = Runtime.getRuntime();
+    long plain = 0;
+    long start = System.nanoTime();
+    // Loops through each seam to remove, printing the heap now and then
+    for (int i = 0; i < count; i += 1) {
+      Seam seam = grid.removeSeam(i % 2 == 1);
+      plain += 8L * seam.path.length;
+      if ((i + 1) % Math.max(1, count / 5) == 0) {
+        System.gc();
+        System.out.printf("after %5d seams: heap %7.1f MB, journal %7.1f MB in memory, %7.1f MB"
+            + " spilled, %7.1f MB as plain ints%n", i + 1,
+            (runtime.totalMemory() - runtime.freeMemory()) / 1e6,
+            grid.removedSeams.residentBytes / 1e6,
+            grid.removedSeams.spilledCount == 0 ? 0 : grid.removedSeams.spillFile.length() / 1e6,
+            plain / 1e6);
+      }
+    }
+    this.report("remove seam", System.nanoTime() - start, count);
+    start = System.nanoTime();
+    // Loops through each seam and puts it back
+    for (int i = 0; i < count; i += 1) {
+      grid.reinsert("v");
+      grid.fixColors();
+    }
+    this.report("undo seam", System.nanoTime() - start, count);
+  }
+
+  // removes the given number of seams, alternating direction, with a
+  // checkpoint every 64 steps, then compares jumping to steps across the
+  // history against undoing one seam at a time back to the start
+  void benchHistory(int width, int height, int count) {
+    System.out.println("scrubbing " + count + " seams of " + width + "x" + height);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    grid.enableHistory(64);
+    long start = System.nanoTime();
+    // Loops through each seam to remove
+    for (int i = 0; i < count; i += 1) {
+      grid.removeSeam(i % 2 == 1);
+    }
+    this.report("remove seam with checkpoints", System.nanoTime() - start, count);
+    long mapBytes = 0;
+    // Loops through each checkpoint and adds up its size
+    for (Checkpoint checkpoint : grid.history.checkpoints) {
+      mapBytes += checkpoint.map.length;
+    }
+    System.out.printf("%d checkpoints, %.1f KB of maps and %.1f MB of baseline colors%n",
+        grid.history.checkpoints.size(), mapBytes / 1e3, grid.history.baseline.length * 4 / 1e6);
+
+    int[] steps = new int[] { 0, count / 2, count / 3, count, count * 3 / 4, 1 };
+    start = System.nanoTime();
+    // Loops through each step and jumps to it
+    for (int step : steps) {
+      long jump = System.nanoTime();
+      int moves = grid.jumpTo(step);
+      System.out.printf("jump to %5d: %4d seams, %8.1f ms%n", step, moves,
+          (System.nanoTime() - jump) / 1e6);
+    }
+    this.report("jump to step", System.nanoTime() - start, steps.length);
+
+    grid.jumpTo(count);
+    start = System.nanoTime();
+    // Loops through each seam and puts it back one at a time
+    for (int i = 0; i < count; i += 1) {
+      grid.undo();
+    }
+    this.report("undo one seam at a time to the start", System.nanoTime() - start, 1);
+  }
+
+  // builds the vertical seam index of a grid, the given number of seams per
+  // seam table, then compares showing it at the given number of widths from
+  // the index against carving the grid one seam at a time
+  void benchSeamIndex(int width, int height, int count) {
+    System.out.println("indexing the vertical seams of " + width + "x" + height);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    long start = System.nanoTime();
+    SeamIndex index = grid.buildSeamIndex(false, 16);
+    this.report("build index, 16 seams per table", System.nanoTime() - start, 1);
+
+    start = System.nanoTime();
+    // Loops through widths spread across the whole range
+    for (int i = 0; i < count; i += 1) {
+      index.colorsAt(1 + (int) ((long) i * (width - 1) / Math.max(1, count - 1)));
+    }
+    this.report("show a width from the index", System.nanoTime() - start, count);
+
+    int seams = Math.min(count, width - 1);
+    start = System.nanoTime();
+    // Loops through each seam, carving the grid one at a time
+    for (int i = 0; i < seams; i += 1) {
+      grid.removeSeamVertical();
+    }
+    this.report("carve one seam", System.nanoTime() - start, seams);
+  }
+
+  // returns the most heap used since the peaks were last reset, in bytes,
+  // and resets them after a collection
+  long peakHeap() {
+    long peak = 0;
+    // Loops through each heap pool and adds up its peak
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    System.gc();
+    // Loops through each heap pool and starts its peak again
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+    return peak;
+  }
+
+  // returns how many bytes this thread has allocated so far
+  long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // writes a synthetic JPEG of the given size, then compares decoding it into
+  // packed colors through the editor's old javalib image, through a whole
+  // decoded image, and through the image loader, printing the most heap and
+  // the bytes the first load used against the colors alone and how long each
+  // load took on average over the given number of loads
+  // the peak counts garbage not yet collected, so a small young generation
+  // (-Xmn) keeps it close to what the load actually holds at once
+  void benchLoad(int width, int height, int count) throws IOException {
+    System.out.printf("loading a %dx%d (%.1f MP) JPEG%n", width, height,
+        (long) width * height / 1e6);
+    File file = File.createTempFile("bench", ".jpg");
+    file.deleteOnExit();
+    BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    source.setRGB(0, 0, width, height, this.syntheticColors(width, height, 1), 0, width);
+    ImageIO.write(source, "jpg", file);
+    source = null;
+    long colorBytes = 4L * width * height;
+    String[] ways = new String[] { "javalib image", "whole decoded image", "image loader" };
+    // Loops through each way of loading, measuring its heap and then its time
+    for (String way : ways) {
+      this.peakHeap();
+      long idle = this.peakHeap();
+      long allocated = this.allocatedBytes();
+      int[] colors = this.load(way, file);
+      allocated = this.allocatedBytes() - allocated;
+      long peak = this.peakHeap() - idle;
+      colors = null;
+      this.peakHeap();
+      long start = System.nanoTime();
+      // Loops through each load
+      for (int i = 0; i < count; i += 1) {
+        colors = this.load(way, file);
+        colors = null;
+      }
+      long nanos = System.nanoTime() - start;
+      System.out.printf("%-20s %10.1f ms/op, peak heap %7.1f MB (%.2fx the colors),"
+          + " allocated %7.1f MB (%.2fx)%n", way, nanos / 1e6 / count, peak / 1e6,
+          (double) peak / colorBytes, allocated / 1e6, (double) allocated / colorBytes);
+    }
+    file.delete();
+  }
+
+  // writes a synthetic PNG of the given size, then removes the given number
+  // of vertical seams from it through a Grid and through memory-mapped files,
+  // printing the most heap each used against the colors alone
+  // how long each takes is timed by CarveFileBenchmark in the JMH module
+  void benchMapped(int width, int height, int count) throws IOException {
+    System.out.printf("removing %d vertical seams from a %dx%d (%.1f MP) PNG%n", count, width,
+        height, (long) width * height / 1e6);
+    File input = File.createTempFile("bench", ".png");
+    File output = File.createTempFile("bench", ".png");
+    input.deleteOnExit();
+    output.deleteOnExit();
+    BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    source.setRGB(0, 0, width, height, this.syntheticColors(width, height, 1), 0, width);
+    ImageIO.write(source, "png", input);
+    source = null;
+    long colorBytes = 4L * width * height;
+    String[] ways = new String[] { "grid", "mapped" };
+    // Loops through each way of carving, measuring its heap
+    for (String way : ways) {
+      this.peakHeap();
+      long idle = this.peakHeap();
+      if (way.equals("grid")) {
+        Retarget retarget = new Retarget();
+        Grid grid = retarget.load(input);
+        grid.carveTo(width - count, height);
+        retarget.save(grid, output);
+      }
+      else {
+        MappedCarver carver = new MappedCarver();
+        carver.load(input);
+        carver.carveTo(width - count, height);
+        carver.save(output);
+        carver.close();
+      }
+      long peak = this.peakHeap() - idle;
+      System.out.printf("%-7s peak heap %8.1f MB (%.2fx the colors)%n", way, peak / 1e6,
+          (double) peak / colorBytes);
+    }
+    input.delete();
+    output.delete();
+  }
+
+  // returns the colors of the given image file, loaded the named way
+  int[] load(String way, File file) throws IOException {
+    if (way.equals("javalib image")) {
+      return new GridUtils().retrieveColors(new FromFileImage(file.getPath()));
+    }
+    if (way.equals("whole decoded image")) {
+      return new GridUtils().retrieveColors(ImageIO.read(file));
+    }
+    return new ImageLoader().read(file);
+  }
+
+  // times drawing the frames the editor shows while removing the given number
+  // of seams, each highlighted on one frame and removed on the next, with a
+  // new image per frame against the kept frame repainted where it changed
+  void benchRender(int width, int height, int count) {
+    System.out.println("drawing " + count + " seams of " + width + "x" + height);
+    String[] ways = new String[] { "new image per frame", "kept frame" };
+    // Loops through each way of drawing and carves a fresh grid with it
+    for (String way : ways) {
+      Grid grid = this.syntheticGrid(width, height, 1);
+      long highlighting = 0;
+      long removing = 0;
+      // Loops through each seam, highlighting it and then removing it
+      for (int i = 0; i < count; i += 1) {
+        grid.highlightSeam(i % 2 == 1);
+        long start = System.nanoTime();
+        this.draw(grid, way);
+        highlighting += System.nanoTime() - start;
+        grid.removeSeam(i % 2 == 1);
+        start = System.nanoTime();
+        this.draw(grid, way);
+        removing += System.nanoTime() - start;
+      }
+      this.report(way + ", seam highlighted", highlighting, count);
+      this.report(way + ", seam removed", removing, count);
+    }
+  }
+
+  // draws the given grid as the editor would, the named way
+  void draw(Grid grid, String way) {
+    if (way.equals("kept frame")) {
+      new GridImages().renderFrame(grid);
+    }
+    else {
+      new GridImages().render(grid);
+    }
+  }
+
+  // times switching the editor to the energy and seam views and drawing them
+  // while removing the given number of seams, with a new image per frame
+  // shaded against a full scan for the largest value and the energy and seam
+  // table found again on every switch, as the editor used to, against the
+  // kept frame shading against the largest value tracked as pixels change
+  void benchViews(int width, int height, int count) {
+    System.out.println("viewing " + count + " seams of " + width + "x" + height);
+    String[] ways = new String[] { "new image per frame", "kept frame" };
+    String[] layers = new String[] { "energy", "seams" };
+    // Loops through each way of drawing and each layer, carving a fresh grid
+    for (String way : ways) {
+      for (String layer : layers) {
+        Grid grid = this.syntheticGrid(width, height, 1);
+        grid.findVerticalSeams();
+        new GridImages().renderFrame(grid);
+        long start = System.nanoTime();
+        this.showLayer(grid, layer, way);
+        long switching = System.nanoTime() - start;
+        long removing = 0;
+        // Loops through each seam, removing it and drawing the layer
+        for (int i = 0; i < count; i += 1) {
+          grid.removeSeamVertical();
+          start = System.nanoTime();
+          if (way.equals("kept frame")) {
+            new GridImages().renderFrame(grid, layer);
+          }
+          else {
+            this.drawLayer(grid, layer);
+          }
+          removing += System.nanoTime() - start;
+        }
+        new GridImages().renderFrame(grid);
+        start = System.nanoTime();
+        this.showLayer(grid, layer, way);
+        long again = System.nanoTime() - start;
+        this.report(way + ", " + layer + " shown", switching, 1);
+        this.report(way + ", " + layer + " seam removed", removing, count);
+        this.report(way + ", " + layer + " shown again", again, 1);
+      }
+    }
+  }
+
+  // switches the editor to the named layer of the given grid, the named way
+  void showLayer(Grid grid, String layer, String way) {
+    if (way.equals("kept frame")) {
+      new GridImages().renderFrame(grid, layer);
+    }
+    else {
+      grid.initializeEnergy();
+      grid.accumulated = "";
+      grid.findVerticalSeams();
+      this.drawLayer(grid, layer);
+    }
+  }
+
+  // draws the named layer of the given grid as a new image, scanning for its
+  // largest value
+  void drawLayer(Grid grid, String layer) {
+    grid.maxEnergyStale = true;
+    grid.maxWeightStale = true;
+    if (layer.equals("energy")) {
+      new GridImages().renderGreyScale(grid);
+    }
+    else {
+      new GridImages().renderSeams(grid);
+    }
+  }
+
+  // times how much processor time the editor's thread spends per frame while
+  // the given number of seams are removed, carving vertical seams on its tick
+  // as it used to against only drawing the latest snapshot of a
+  // CarvingEngine's worker, which carves whichever way is cheaper
+  void benchWorker(int width, int height, int count) {
+    System.out.println("carving " + count + " seams of " + width + "x" + height);
+    Grid grid = this.syntheticGrid(width, height, 1);
+    long ticking = 0;
+    long longest = 0;
+    // Loops through each seam, highlighting it on one tick and removing it on
+    // the next
+    for (int i = 0; i < 2 * count; i += 1) {
+      long start = this.cpuTime();
+      if (i % 2 == 0) {
+        grid.highlightSeam(false);
+      }
+      else {
+        grid.removeSeamVertical();
+      }
+      new GridImages().renderFrame(grid);
+      long tick = this.cpuTime() - start;
+      ticking += tick;
+      longest = Math.max(longest, tick);
+    }
+    this.report("carving on the tick, per frame", ticking, 2 * count);
+    this.report("carving on the tick, longest frame", longest, 1);
+
+    CarvingEngine engine = new CarvingEngine(this.syntheticGrid(width, height, 1), 0);
+    GridView view = new GridView("colors");
+    long drawing = 0;
+    longest = 0;
+    int frames = 0;
+    int shownSize = width + height;
+    engine.start();
+    // Loops, drawing each snapshot taken, until one shows the seams removed
+    while (shownSize > width + height - count) {
+      long start = this.cpuTime();
+      Snapshot snapshot = engine.take();
+      if (snapshot != null) {
+        view.show(snapshot);
+        shownSize = snapshot.width + snapshot.height;
+        engine.recycle(snapshot);
+        frames += 1;
+      }
+      long frame = this.cpuTime() - start;
+      drawing += frame;
+      longest = Math.max(longest, frame);
+      Thread.yield();
+    }
+    try {
+      engine.stop();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.report("drawing snapshots, per frame", drawing, Math.max(1, frames));
+    this.report("drawing snapshots, longest frame", longest, 1);
+  }
+
+  // returns the processor time the current thread has used, in nanoseconds,
+  // which leaves out the time another thread had the processor
+  long cpuTime() {
+    return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+  }
+
+  // compares the quality of the result when removing the given number of
+  // vertical seams costed by backward and by forward energy, where quality is
+  // the sobel energy of the pixels removed, which backward energy keeps low,
+  // and the brightness jumps across the edges the removals make, which
+  // forward energy keeps low and which show as artifacts
+  // how long each takes is timed by SeamCostBenchmark in the JMH module
+  void benchForwardEnergy(int width, int height, int count) {
+    System.out.println("removing " + count + " vertical seams from " + width + "x" + height);
+    boolean[] costs = new boolean[] { false, true };
+    // Loops through each cost and carves a fresh grid with it
+    for (boolean forward : costs) {
+      Grid grid = this.syntheticGrid(width, height, 1);
+      grid.useForwardEnergy(forward);
+      double removed = 0;
+      double made = 0;
+      // Loops through each seam, measuring it before it is removed
+      for (int i = 0; i < count; i += 1) {
+        Seam seam = grid.planSeam(false).seam;
+        removed += this.energyOf(grid, seam);
+        made += this.edgesMade(grid, seam);
+        grid.removeSeamVertical();
+      }
+      String label = "backward";
+      if (forward) {
+        label = "forward";
+      }
+      System.out.printf("%-40s %10.3f energy removed, %10.3f in edges made%n", label + " energy",
+          removed, made);
+    }
+  }
+
+  // returns the sobel energy of the pixels of the given vertical seam
+  double energyOf(Grid grid, Seam seam) {
+    double total = 0;
+    // Loops through each row of the seam
+    for (int row = 0; row < grid.height; row += 1) {
+      total += grid.energy[grid.index(row, seam.path[row])];
+    }
+    return total;
+  }
+
+  // returns the brightness jumps across the new edges removing the given
+  // vertical seam would make: between the pixels on either side of it in each
+  // row, and between each pixel above a diagonal step and the pixel it ends up
+  // next to, where everything outside the grid is black
+  double edgesMade(Grid grid, Seam seam) {
+    double total = 0;
+    // Loops through each row of the seam
+    for (int row = 0; row < grid.height; row += 1) {
+      int col = seam.path[row];
+      total += Math.abs(grid.brightnessAt(row, col + 1) - grid.brightnessAt(row, col - 1));
+      if (row > 0 && seam.path[row - 1] == col - 1) {
+        total += Math.abs(grid.brightnessAt(row - 1, col) - grid.brightnessAt(row, col - 1));
+      }
+      else if (row > 0 && seam.path[row - 1] == col + 1) {
+        total += Math.abs(grid.brightnessAt(row - 1, col) - grid.brightnessAt(row, col + 1));
+      }
+    }
+    return total;
+  }
+
+  // compares the time taken and the total energy removed when carving the
+  // given number of vertical seams with one seam table per seam against
+  // several disjoint seams per table
+  void benchSeamsPerPass(int width, int height, int count) {
+    System.out.println("removing " + count + " vertical seams from " + width + "x" + height);
+    int[] perPass = new int[] { 1, 4, 16, 64 };
+    // Loops through each number of seams per table and carves a fresh grid
+    for (int k : perPass) {
+      Grid grid = this.syntheticGrid(width, height, 1);
+      long start = System.nanoTime();
+      ArrayList<Seam> trace = grid.carveTo(width - count, height, k);
+      long nanos = System.nanoTime() - start;
+      double total = 0;
+      // Loops through each seam removed and adds up its energy
+      for (Seam seam : trace) {
+        total += seam.totalWeight;
+      }
+      System.out.printf("%3d per pass: %10.1f ms, total energy %12.4f%n", k, nanos / 1e6, total);
+    }
+  }
+
+  // compares the total energy removed and the time taken when carving the
+  // given number of seams off each side in each of the three orders
+  void benchCarveOrder(int width, int height, int count) {
+    System.out.println("carving " + width + "x" + height + " down by " + count + " each way");
+    Retarget retarget = new Retarget();
+    String[] orders = new String[] { "columns", "greedy", "optimal" };
+    // Loops through each order and carves a fresh grid with it
+    for (String order : orders) {
+      Grid grid = this.syntheticGrid(width, height, 1);
+      long start = System.nanoTime();
+      ArrayList<Seam> trace = retarget.carve(grid, width - count, height - count, order);
+      long nanos = System.nanoTime() - start;
+      double total = 0;
+      // Loops through each seam removed and adds up its energy
+      for (Seam seam : trace) {
+        total += seam.totalWeight;
+      }
+      System.out.printf("%-10s total energy %12.4f in %10.1f ms%n", order, total, nanos / 1e6);
+    }
+  }
+
+  // finds and removes the given number of seams in each direction on one
+  // large grid, which needs no more than the default thread stack
+  void benchLargeSeam(int width, int height, int count) {
+    System.out.println("carving a " + width + "x" + height + " grid");
+    long start = System.nanoTime();
+    Grid grid = this.syntheticGrid(width, height, 1);
+    this.report("build grid", System.nanoTime() - start, 1);
+    start = System.nanoTime();
+    // Loops through each vertical seam to remove
+    for (int i = 0; i < count; i += 1) {
+      grid.removeSeamVertical();
+    }
+    this.report("remove vertical seam", System.nanoTime() - start, count);
+    start = System.nanoTime();
+    // Loops through each horizontal seam to remove
+    for (int i = 0; i < count; i += 1) {
+      grid.removeSeamHorizontal();
+    }
+    this.report("remove horizontal seam", System.nanoTime() - start, count);
+  }
+
+}
@@ -0,0 +1,92 @@
+import java.awt.Color;
+import java.util.ArrayList;
+
+// Class representing a BorderPixel
+class BorderPixel extends APixel {
+  // constructor for borderpixel
+  BorderPixel() {
+    super(Color.BLACK, null, null, null, null);
+  }
+
+  // computes the energy of a border pixel
+  public double computeEnergy() {
+    return -1;
+  }
+
+  // computes the total weight of a borderpixel
+  public double computeTotalWeight() {
+    return -1;
+  }
+
+  // returns the seam of a borderpixel
+  public SeamInfo computeSeam() {
+    throw new IllegalArgumentException("no seam");
+  }
+
+  // accumulates all the pixels to the right of this one, and returns a list of
+  // them
+  public ArrayList<Pixel> accumulateRight(ArrayList<Pixel> arr) {
+    return arr;
+  }
+
+  // accumulates all the pixels of this pixel and the entire graph and returns it
+  // in an arraylist
+  public ArrayList<ArrayList<Pixel>> accumulateBottom(ArrayList<ArrayList<Pixel>> arr) {
+    return arr;
+  }
+
+  // returns the left most neighbor of a pixel, which is the accumulated pixel
+  public Pixel findLeftMost(Pixel acc) {
+    return acc;
+  }
+
+  // returns the left most neighbor of a pixel, which is the accumulated pixel
+  public Pixel findTopMost(Pixel acc) {
+    return acc;
+  }
+
+  // sets left, right, etc, to a given pixel
+  public void setReference(String dir, APixel n) {
+    this.left = this;
+  }
+
+  // a border pixel is a border
+  public boolean isBorder() {
+    return true;
+  }
+
+  // determines if this row of pixels is wellformed
+  public boolean wellFormedRow() {
+    return true;
+  }
+
+  // determines if the entire graph of pixels is well formed
+  public boolean wellFormed() {
+    return true;
+  }
+
+  // updates all the seam info values for horizontal seams, going downwards
+  public ArrayList<SeamInfo> accumulateSeamInfoHorizontalDown(ArrayList<SeamInfo> arr, boolean init,
+      int idx) {
+    return arr;
+  }
+
+  // accumulates the seaminfo of this pixel and the ones on the right into an
+  // arraylist
+  public ArrayList<SeamInfo> accumulateSeamInfoRight(ArrayList<SeamInfo> arr, boolean init,
+      int idx) {
+    return arr;
+  }
+
+  // accumulates the seaminfo of this pixel and the entire graph into an array
+  // list
+  public ArrayList<SeamInfo> accumulateSeamInfoBottom(ArrayList<SeamInfo> arr) {
+    return arr;
+  }
+
+  // updates all the seam info values for horizontal seams, but for each column
+  public ArrayList<SeamInfo> accumulateSeamInfoHorizontal(ArrayList<SeamInfo> arr) {
+    return arr;
+  }
+
+}
@@ -0,0 +1,347 @@
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// carves a Grid on a worker thread of its own, so that the editor's tick only
+// draws, however long a pass over the grid takes
+// the editor's keys are queued to the worker as commands, and the worker
+// publishes what is to be shown after each step as a Snapshot, handed over
+// through an AtomicReference; the editor takes the latest one, and gives it
+// back once it has drawn it, so that the worker can fill it again rather than
+// allocating a new one every step
+// everything but the queue and the two references belongs to the worker
+// once it has started
+class CarvingEngine implements Runnable {
+  Grid picture;
+  // the keys the editor has pressed, in order
+  LinkedBlockingQueue<String> commands;
+  // the snapshot published last, until the editor takes it
+  AtomicReference<Snapshot> latest;
+  // a snapshot no one is looking at any more, to be filled next
+  AtomicReference<Snapshot> spare;
+  Thread worker;
+  // the pixels of the picture's shown layer changed since the last snapshot,
+  // marked by the picture as it is carved
+  GridView changes;
+  // the least time between two steps, so that a highlighted seam stays on
+  // screen before it is removed
+  long stepNanos;
+
+  int ticks;
+  boolean pause;
+  boolean removeHorizontal;
+  boolean oneIterationVertical;
+  boolean oneIterationHorizontal;
+  boolean greyScale;
+  boolean seamScale;
+  boolean reinsertThis;
+  boolean isHighlighted;
+  ArrayList<String> moves;
+  // the order seams remove the picture's pixels in while previewing it at
+  // other sizes, or null when not previewing
+  SeamIndex preview;
+
+  // constructor for CarvingEngine, carving the given grid a step every given
+  // number of nanoseconds at most, once started
+  CarvingEngine(Grid picture, long stepNanos) {
+    if (stepNanos < 0) {
+      throw new IllegalArgumentException("time between steps cannot be negative");
+    }
+    this.picture = picture;
+    this.stepNanos = stepNanos;
+    this.commands = new LinkedBlockingQueue<String>();
+    this.latest = new AtomicReference<Snapshot>();
+    this.spare = new AtomicReference<Snapshot>();
+    this.moves = new ArrayList<String>();
+  }
+
+  // starts the worker, which stops with the editor
+  void start() {
+    if (this.worker != null) {
+      throw new IllegalStateException("already started");
+    }
+    this.worker = new Thread(this, "carving");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  // stops the worker and waits for it to finish its step
+  void stop() throws InterruptedException {
+    if (this.worker != null) {
+      this.worker.interrupt();
+      this.worker.join();
+    }
+  }
+
+  // queues the given key to the worker
+  void send(String key) {
+    this.commands.add(key);
+  }
+
+  // returns the snapshot published since the last one taken, or null if
+  // there is none
+  Snapshot take() {
+    return this.latest.getAndSet(null);
+  }
+
+  // gives back a snapshot taken, which the caller must no longer look at
+  void recycle(Snapshot snapshot) {
+    this.spare.set(snapshot);
+  }
+
+  // carves until stopped, applying each command as it arrives and otherwise
+  // taking a step whenever one is due
+  public void run() {
+    this.publish();
+    long due = System.nanoTime();
+    try {
+      // Loops until the worker is interrupted
+      while (true) {
+        String command;
+        if (this.isIdle()) {
+          command = this.commands.take();
+        }
+        else {
+          command = this.commands.poll(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        if (command != null) {
+          this.apply(command);
+        }
+        else {
+          this.step();
+          due = System.nanoTime() + this.stepNanos;
+        }
+        this.publish();
+      }
+    }
+    catch (InterruptedException e) {
+      return;
+    }
+  }
+
+  // returns whether there is nothing to do until a command arrives
+  boolean isIdle() {
+    return this.preview != null || (this.pause && !this.reinsertThis
+        && !this.oneIterationVertical && !this.oneIterationHorizontal);
+  }
+
+  // publishes what is to be shown now, filling any snapshot the editor has
+  // not taken yet again, so that the changes it held are not lost
+  void publish() {
+    Snapshot snapshot = this.latest.getAndSet(null);
+    boolean unseen = snapshot != null;
+    if (snapshot == null) {
+      snapshot = this.spare.getAndSet(null);
+    }
+    if (snapshot == null) {
+      snapshot = new Snapshot();
+    }
+    String layer = "colors";
+    if (this.greyScale) {
+      layer = "energy";
+    }
+    else if (this.seamScale) {
+      this.accumulateLast();
+      layer = "seams";
+    }
+    if (this.changes == null || !this.changes.layer.equals(layer)) {
+      this.picture.views.remove(this.changes);
+      this.changes = new GridView(layer);
+      this.picture.views.add(this.changes);
+    }
+    snapshot.fill(this.picture, layer, this.preview, this.changes, unseen);
+    this.latest.set(snapshot);
+  }
+
+  // takes the next step: highlighting or removing a seam, or putting one back
+  void step() {
+    if (this.preview != null) {
+      return;
+    }
+    if (this.pause) {
+      if (this.reinsertThis) {
+        if (this.ticks % 2 == 0) {
+          this.picture.reinsert(this.moves.get(this.moves.size() - 1));
+          this.picture.highlightReinserted();
+          this.moves.remove(this.moves.size() - 1);
+        }
+        else {
+          this.picture.fixColors();
+          this.reinsertThis = false;
+        }
+        this.ticks += 1;
+      }
+
+      if (this.oneIterationVertical) {
+        if (this.ticks % 2 == 0) {
+          this.picture.highlightSeam(false);
+          this.isHighlighted = true;
+        }
+        else {
+          if (this.picture.removeSeamVertical() != null) {
+            this.moves.add("v");
+          }
+          this.oneIterationVertical = false;
+          this.isHighlighted = false;
+        }
+        this.ticks += 1;
+      }
+      else if (this.oneIterationHorizontal) {
+        if (this.ticks % 2 == 0) {
+          this.picture.highlightSeam(true);
+          this.isHighlighted = true;
+        }
+        else {
+          if (this.picture.removeSeamHorizontal() != null) {
+            this.moves.add("h");
+          }
+          this.oneIterationHorizontal = false;
+          this.isHighlighted = false;
+        }
+        this.ticks += 1;
+      }
+    }
+    else {
+      // each seam goes the cheaper way, so a run always removes the same seams
+      if (this.ticks % 2 == 0) {
+        this.removeHorizontal = this.picture.planCheaperSeam().isHorizontal;
+        this.picture.highlightSeam(this.removeHorizontal);
+        this.isHighlighted = true;
+      }
+      else if (this.removeHorizontal) {
+        if (this.picture.removeSeamHorizontal() != null) {
+          this.moves.add("h");
+        }
+        this.isHighlighted = false;
+      }
+      else {
+        if (this.picture.removeSeamVertical() != null) {
+          this.moves.add("v");
+        }
+        this.isHighlighted = false;
+      }
+      this.ticks += 1;
+    }
+  }
+
+  // applies the given key pressed in the editor
+  void apply(String key) {
+    // previews the picture at any width, or height, from the order seams
+    // remove its pixels in, found once
+    if ((key.equals("r") || key.equals("t")) && this.preview == null && !this.isHighlighted
+        && !this.reinsertThis) {
+      this.preview = this.picture.buildSeamIndex(key.equals("t"), 16);
+      return;
+    }
+    if (this.preview != null) {
+      if (key.equals("r") || key.equals("t")) {
+        this.preview = null;
+      }
+      return;
+    }
+
+    if (key.equals(" ")) {
+      if (this.isHighlighted) {
+        this.isHighlighted = false;
+        this.step();
+      }
+      this.oneIterationHorizontal = false;
+      this.reinsertThis = false;
+      this.oneIterationVertical = false;
+      this.pause = !this.pause;
+      this.ticks = 0;
+    }
+
+    // removes vertical seam
+    if (key.equals("v") && this.pause && !this.reinsertThis && !this.oneIterationHorizontal) {
+      this.oneIterationVertical = true;
+      this.ticks = 0;
+    }
+
+    // removes horizontal seam
+    if (key.equals("h") && this.pause && !this.reinsertThis && !this.oneIterationVertical) {
+      this.oneIterationHorizontal = true;
+      this.ticks = 0;
+    }
+
+    // shows energy of each pixel
+    if (key.equals("g")) {
+      if (this.isHighlighted) {
+        this.step();
+        this.isHighlighted = false;
+      }
+      this.greyScale = !this.greyScale;
+      this.seamScale = false;
+    }
+
+    // shows accumulated seam energies based on what last removal was
+    if (key.equals("s")) {
+      if (this.isHighlighted) {
+        this.step();
+        this.isHighlighted = false;
+      }
+      this.seamScale = !this.seamScale;
+      this.greyScale = false;
+    }
+
+    // undo
+    // only allowed to undo while it is paused, since it doesn't make sense
+    // to be undoing while removing at the same time.
+    if (key.equals("u") && this.pause && this.moves.size() > 0 && !this.oneIterationVertical
+        && !this.oneIterationHorizontal && this.ticks % 2 == 0) {
+      this.reinsertThis = true;
+    }
+
+    // steps through the history one seam, or a tenth of it, at a time
+    if (this.pause && !this.oneIterationVertical && !this.oneIterationHorizontal
+        && !this.reinsertThis && this.ticks % 2 == 0) {
+      int step = this.picture.removedSeams.size();
+      int tenth = Math.max(1, this.picture.removedSeams.total() / 10);
+      if (key.equals("left")) {
+        this.scrubTo(step - 1);
+      }
+      else if (key.equals("right")) {
+        this.scrubTo(step + 1);
+      }
+      else if (key.equals("[")) {
+        this.scrubTo(step - tenth);
+      }
+      else if (key.equals("]")) {
+        this.scrubTo(step + tenth);
+      }
+    }
+  }
+
+  // jumps the picture to the given step of its history, kept within the
+  // steps there are, and brings the list of moves up to date
+  void scrubTo(int step) {
+    this.picture.jumpTo(Math.max(0, Math.min(step, this.picture.removedSeams.total())));
+    this.isHighlighted = false;
+    // Loops until the moves no longer include undone seams
+    while (this.moves.size() > this.picture.removedSeams.size()) {
+      this.moves.remove(this.moves.size() - 1);
+    }
+    // Loops through each redone seam and adds its direction
+    for (int i = this.moves.size(); i < this.picture.removedSeams.size(); i += 1) {
+      if (this.picture.removedSeams.get(i).isHorizontal) {
+        this.moves.add("h");
+      }
+      else {
+        this.moves.add("v");
+      }
+    }
+  }
+
+  // accumulates the seam weights in the direction of the last removal, which
+  // is kept up to date as seams come and go
+  void accumulateLast() {
+    if (this.moves.size() > 0 && this.moves.get(this.moves.size() - 1).equals("h")) {
+      this.picture.findHorizontalSeams();
+    }
+    else {
+      this.picture.findVerticalSeams();
+    }
+  }
+
+}
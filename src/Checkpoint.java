@@ -0,0 +1,20 @@
+// the shape of a Grid at one step of its seam journal
+class Checkpoint {
+  int step;
+  int width;
+  int height;
+  // how many bytes the map has once inflated
+  int rawSize;
+  // the deflated baseline index of every pixel
+  byte[] map;
+
+  // constructor for Checkpoint
+  Checkpoint(int step, int width, int height, int rawSize, byte[] map) {
+    this.step = step;
+    this.width = width;
+    this.height = height;
+    this.rawSize = rawSize;
+    this.map = map;
+  }
+
+}
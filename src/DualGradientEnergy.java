@@ -0,0 +1,35 @@
+// computes the dual-gradient energy of a Grid's pixels from their brightness:
+// the length of the difference between the pixels to the left and right and
+// the difference between the pixels above and below, which reads half the
+// neighbors the sobel energy does
+// everything outside the grid is black, as it is for the sobel energy
+class DualGradientEnergy extends AEnergy {
+
+  // returns the name this function is picked by
+  public String name() {
+    return "dual";
+  }
+
+  // computes the energy of the pixel at the given row and column
+  public float computeAt(Grid grid, int row, int col) {
+    float across = grid.brightnessAt(row, col - 1) - grid.brightnessAt(row, col + 1);
+    float down = grid.brightnessAt(row - 1, col) - grid.brightnessAt(row + 1, col);
+    return (float) Math.sqrt(across * across + down * down);
+  }
+
+  // computes the energy of the inside of the given row
+  void computeInside(Grid grid, int row) {
+    float[] lum = grid.brightness;
+    float[] energy = grid.energy;
+    int here = grid.index(row, 0);
+    int up = here - grid.stride;
+    int down = here + grid.stride;
+    // Loops through the inside of the row, where every neighbor exists
+    for (int col = 1; col < grid.width - 1; col += 1) {
+      float across = lum[here + col - 1] - lum[here + col + 1];
+      float vertical = lum[up + col] - lum[down + col];
+      energy[here + col] = (float) Math.sqrt(across * across + vertical * vertical);
+    }
+  }
+
+}
@@ -0,0 +1,2460 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// represents a Grid of pixels, stored as flat row-major arrays
+// pixel (row, col) lives at index row * stride + col, and removing a seam
+// compacts each row (or column) in place
+class Grid {
+  int width;
+  int height;
+  // distance between the start of one row and the next in the arrays below
+  int stride;
+
+  // packed ARGB color of each pixel
+  int[] colors;
+  // brightness of each pixel's original color, from 0-1
+  float[] brightness;
+  // 8-bit luma of each pixel's original color, the mean of its channels
+  // rounded down, kept alongside the brightness only while the energy
+  // function reads it, and null otherwise
+  byte[] luma;
+  // energy of each pixel
+  float[] energy;
+  // accumulated weight of the cheapest seam ending at each pixel
+  float[] totalWeight;
+  // which neighbor the cheapest seam ending at each pixel came from:
+  // -1 : top left (or left top), 0 : top (or left), 1 : top right (or left bottom)
+  byte[] cameFrom;
+  // which seams totalWeight and cameFrom currently hold: "v", "h", or "" when
+  // they are out of date
+  String accumulated;
+  // the seam table of the other direction, kept up to date alongside while
+  // the cheapest seams of both directions are compared, so that neither
+  // search rebuilds the table the other one just used: otherAccumulated is
+  // the direction it holds, or "" when it is not kept, and the arrays are
+  // null until it first is
+  float[] otherWeight;
+  byte[] otherFrom;
+  String otherAccumulated;
+  // with a mask, how many more protected pixels than pixels to remove the
+  // cheapest seam ending at each pixel crosses, in each direction's table,
+  // kept apart from its weight so that the mask's weight never swamps the
+  // energy in a float; a seam crossing fewer is always cheaper
+  // both are null without a mask
+  int[] masked;
+  int[] otherMasked;
+  // whether seams cost the forward energy of the edges their removal makes,
+  // rather than the energy of the pixels they remove
+  boolean forwardEnergy;
+  // where each pixel was in the baseline grid, as row * baseline width + col,
+  // where the baseline is the grid as first made or as last enlarged
+  int[] origin;
+  // how many pixels the baseline grid has
+  int baselineSize;
+  // the baseline pixels seams are kept away from or drawn to, or null if
+  // there are none
+  SeamMask mask;
+  // finds the seam to remove next coarse to fine, or null to find the exact
+  // seam in the seam table
+  PyramidSearch pyramid;
+
+  // the seams removed so far, newest last, for undo, or null if they are not
+  // kept
+  SeamJournal removedSeams;
+  // checkpoints for jumping to any step of removedSeams, or null if they are
+  // not kept
+  GridHistory history;
+
+  // the seam currently painted red, with the colors it covers
+  Seam highlighted;
+
+  // counts the changes to this grid's shape, so that a plan made for an older
+  // version is never used
+  int version;
+  // the seam to remove next, shared by highlighting, removal and undo
+  SeamPlan plan;
+
+  // rows (or columns) at least this long are accumulated in parallel chunks
+  int parallelThreshold;
+
+  // computes the energy of this grid's pixels, the sobel energy unless
+  // another function is picked
+  IEnergy energyFunction;
+
+  // the largest energy and accumulated weight, kept as pixels change, and
+  // whether the pixel that held one may have lost it, so that it has to be
+  // found again the next time it is asked for
+  double maxEnergy;
+  boolean maxEnergyStale;
+  double maxWeight;
+  boolean maxWeightStale;
+
+  // the images the editor draws the layers of this grid into, one for each
+  // layer drawn so far, told which pixels change, so that switching back to
+  // a layer only repaints what changed while it was hidden
+  ArrayList<GridView> views;
+  // an image over this grid's colors, as large as the arrays, or null until
+  // one is asked for
+  BufferedImage shared;
+
+  // constructor for Grid from packed ARGB colors in row-major order
+  Grid(int[] colors, int width, int height) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("array list given has no pixels");
+    }
+    if (colors.length < width * height) {
+      throw new IllegalArgumentException("not well formed");
+    }
+    this.width = width;
+    this.height = height;
+    this.stride = width;
+    this.colors = colors;
+    this.brightness = new float[width * height];
+    this.energy = new float[width * height];
+    this.totalWeight = new float[width * height];
+    this.cameFrom = new byte[width * height];
+    this.origin = new int[width * height];
+    this.baselineSize = width * height;
+    this.accumulated = "";
+    this.otherAccumulated = "";
+    this.maxWeightStale = true;
+    this.parallelThreshold = 4096;
+    this.energyFunction = new SobelEnergy();
+    this.views = new ArrayList<GridView>();
+    this.removedSeams = new SeamJournal(1 << 24);
+
+    // Loops through each pixel and computes its brightness
+    for (int i = 0; i < width * height; i += 1) {
+      this.brightness[i] = new GridUtils().brightnessOf(colors[i]);
+      this.origin[i] = i;
+    }
+    this.initializeEnergy();
+  }
+
+  // constructor for Grid from a list of rows of pixels
+  Grid(ArrayList<ArrayList<Pixel>> pixels) {
+    this(new GridUtils().retrieveColors(pixels), new GridUtils().widthOf(pixels), pixels.size());
+  }
+
+  // returns the index of the pixel at the given row and column
+  int index(int row, int col) {
+    return row * this.stride + col;
+  }
+
+  // returns the color of the pixel at the given column and row
+  Color getColorAt(int col, int row) {
+    return new Color(this.colors[this.index(row, col)]);
+  }
+
+  // returns the brightness at the given row and column, which is 0 outside the
+  // grid, just like a border pixel
+  float brightnessAt(int row, int col) {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      return 0;
+    }
+    return this.brightness[this.index(row, col)];
+  }
+
+  // returns the luma at the given row and column, which is 0 outside the grid
+  int lumaAt(int row, int col) {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      return 0;
+    }
+    return this.luma[this.index(row, col)] & 0xFF;
+  }
+
+  // keeps the luma of every pixel from now on, working it out from the colors
+  // if it is not kept yet, so that an energy function reading it never
+  // converts a color itself
+  void keepLuma() {
+    if (this.luma != null && this.luma.length == this.colors.length) {
+      return;
+    }
+    this.luma = new byte[this.colors.length];
+    // Loops through each row and works out the luma of its pixels
+    for (int row = 0; row < this.height; row += 1) {
+      for (int col = 0; col < this.width; col += 1) {
+        this.noteLuma(this.index(row, col));
+      }
+    }
+  }
+
+  // brings the luma of the pixel at the given index up to date with its
+  // color, if the luma is kept
+  void noteLuma(int idx) {
+    if (this.luma != null) {
+      this.luma[idx] = (byte) new GridUtils().lumaOf(this.colors[idx]);
+    }
+  }
+
+  // computes the energy of the pixel at the given row and column
+  float computeEnergy(int row, int col) {
+    return this.energyFunction.computeAt(this, row, col);
+  }
+
+  // initializes the energy levels of every pixel
+  void initializeEnergy() {
+    this.energyFunction.computeAll(this);
+    this.maxEnergyStale = true;
+    this.touchLayer("energy");
+  }
+
+  // recomputes the energy of only the pixels within one pixel of where the given
+  // seam was removed or reinserted, since no other pixel's neighbors changed
+  void updateEnergyAround(Seam seam) {
+    // Loops through each step of the seam and recomputes its neighborhood
+    for (int i = 0; i < seam.path.length; i += 1) {
+      int lo = this.seamMin(seam, i);
+      int hi = this.seamMax(seam, i);
+      if (seam.isHorizontal) {
+        // Loops through the rows around the seam in this column
+        for (int row = Math.max(0, lo - 1); row <= Math.min(this.height - 1, hi + 1); row += 1) {
+          this.setEnergy(this.index(row, i), this.computeEnergy(row, i));
+          this.touchLayer("energy", row, i, i + 1);
+        }
+      }
+      else {
+        // Loops through the columns around the seam in this row
+        for (int col = Math.max(0, lo - 1); col <= Math.min(this.width - 1, hi + 1); col += 1) {
+          this.setEnergy(this.index(i, col), this.computeEnergy(i, col));
+        }
+        this.touchLayer("energy", i, Math.max(0, lo - 1), Math.min(this.width, hi + 2));
+      }
+    }
+  }
+
+  // sets the energy of the pixel at the given index, keeping track of the
+  // largest energy
+  void setEnergy(int idx, float energy) {
+    float old = this.energy[idx];
+    this.energy[idx] = energy;
+    if (energy > this.maxEnergy) {
+      this.maxEnergy = energy;
+    }
+    else if (old >= this.maxEnergy && energy < old) {
+      this.maxEnergyStale = true;
+    }
+  }
+
+  // notes that the seam weight of the pixel at the given index changed from
+  // the given old weight, keeping track of the largest weight
+  void noteWeight(int idx, float old) {
+    float weight = this.totalWeight[idx];
+    if (weight > this.maxWeight) {
+      this.maxWeight = weight;
+    }
+    else if (old >= this.maxWeight && !(weight >= old)) {
+      this.maxWeightStale = true;
+    }
+  }
+
+  // notes that the pixel at the given index is being removed, which may take
+  // the largest energy or weight with it
+  void noteRemoved(int idx) {
+    if (this.energy[idx] >= this.maxEnergy) {
+      this.maxEnergyStale = true;
+    }
+    if (this.totalWeight[idx] >= this.maxWeight) {
+      this.maxWeightStale = true;
+    }
+  }
+
+  // returns the smallest position of the given seam at the given step and the
+  // steps next to it
+  int seamMin(Seam seam, int step) {
+    int min = seam.path[step];
+    if (step > 0) {
+      min = Math.min(min, seam.path[step - 1]);
+    }
+    if (step < seam.path.length - 1) {
+      min = Math.min(min, seam.path[step + 1]);
+    }
+    return min;
+  }
+
+  // returns the largest position of the given seam at the given step and the
+  // steps next to it
+  int seamMax(Seam seam, int step) {
+    int max = seam.path[step];
+    if (step > 0) {
+      max = Math.max(max, seam.path[step - 1]);
+    }
+    if (step < seam.path.length - 1) {
+      max = Math.max(max, seam.path[step + 1]);
+    }
+    return max;
+  }
+
+  // returns the shade of grey, from 0 to 255, the given layer, "energy" or
+  // "seams", gives the pixel at the given index against the given largest
+  // value, as GridImages.renderGreyScale and renderSeams shade it
+  int shadeAt(String layer, int idx, double max) {
+    if (max <= 0) {
+      return 0;
+    }
+    if (layer.equals("energy")) {
+      // rounded as the float constructor of Color rounds
+      return (int) ((float) (this.energy[idx] / max) * 255 + 0.5);
+    }
+    return (int) (255.0 * this.totalWeight[idx] / max);
+  }
+
+  // returns the largest value the given layer, "colors", "energy" or "seams",
+  // is shaded against, which is 0 for the colors
+  double layerMax(String layer) {
+    if (layer.equals("energy")) {
+      return this.getMaxEnergy();
+    }
+    if (layer.equals("seams")) {
+      return this.getMaxTotalWeight();
+    }
+    if (!layer.equals("colors")) {
+      throw new IllegalArgumentException("no such layer");
+    }
+    return 0;
+  }
+
+  // copies the given layer of this grid, "colors", "energy" or "seams", into
+  // the given array as opaque packed colors, row by row
+  void copyLayer(String layer, int[] into) {
+    double max = this.layerMax(layer);
+    // Loops through each row and copies it
+    for (int row = 0; row < this.height; row += 1) {
+      this.copyLayer(layer, row, 0, this.width, into, row * this.width, max);
+    }
+  }
+
+  // copies the given columns of the given row of the given layer into the
+  // given array from the given index on, as opaque packed colors, shading
+  // the energy and seam weights against the given largest value as shadeAt
+  // does
+  void copyLayer(String layer, int row, int from, int to, int[] into, int at, double max) {
+    int idx = this.index(row, from);
+    if (layer.equals("colors")) {
+      // Loops through each column and copies its color
+      for (int i = 0; i < to - from; i += 1) {
+        into[at + i] = 0xFF000000 | this.colors[idx + i];
+      }
+      return;
+    }
+    boolean isEnergy = layer.equals("energy");
+    float[] values = this.totalWeight;
+    if (isEnergy) {
+      values = this.energy;
+    }
+    // Loops through each column and copies its shade
+    for (int i = 0; i < to - from; i += 1) {
+      int shade = 0;
+      if (max > 0 && isEnergy) {
+        shade = (int) ((float) (values[idx + i] / max) * 255 + 0.5);
+      }
+      else if (max > 0) {
+        shade = (int) (255.0 * values[idx + i] / max);
+      }
+      into[at + i] = 0xFF000000 | (shade << 16) | (shade << 8) | shade;
+    }
+  }
+
+  // returns the maximum energy of this grid, only scanning for it when the
+  // pixel that held it may have changed
+  double getMaxEnergy() {
+    if (this.maxEnergyStale) {
+      this.maxEnergy = this.getMax(this.energy);
+      this.maxEnergyStale = false;
+    }
+    return this.maxEnergy;
+  }
+
+  // returns the maximum total weight of this grid, only scanning for it when
+  // the pixel that held it may have changed
+  double getMaxTotalWeight() {
+    if (this.maxWeightStale) {
+      this.maxWeight = this.getMax(this.totalWeight);
+      this.maxWeightStale = false;
+    }
+    return this.maxWeight;
+  }
+
+  // returns the maximum of the given per-pixel values over this grid
+  double getMax(float[] values) {
+    double max = 0.0;
+    // Loops through each pixel and updates max
+    for (int row = 0; row < this.height; row += 1) {
+      for (int col = 0; col < this.width; col += 1) {
+        if (values[this.index(row, col)] > max) {
+          max = values[this.index(row, col)];
+        }
+      }
+    }
+    return max;
+  }
+
+  // returns an opaque image of this grid that shares its colors rather than
+  // copying them, so that it shows every later change to them, until the
+  // arrays are replaced as the grid grows
+  BufferedImage asImage() {
+    if (this.shared == null
+        || ((DataBufferInt) this.shared.getRaster().getDataBuffer()).getData() != this.colors) {
+      int rows = this.colors.length / this.stride;
+      WritableRaster raster = Raster.createPackedRaster(
+          new DataBufferInt(this.colors, this.colors.length), this.stride, rows, this.stride,
+          new int[] { 0xFF0000, 0xFF00, 0xFF }, null);
+      this.shared = new BufferedImage(new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF), raster,
+          false, null);
+    }
+    return this.shared.getSubimage(0, 0, this.width, this.height);
+  }
+
+  // marks the given columns of the given row as changed for the views
+  void touch(int row, int from, int to) {
+    // Loops through each view
+    for (GridView view : this.views) {
+      view.touch(row, from, to);
+    }
+  }
+
+  // marks every pixel as changed for the views
+  void touchAll() {
+    // Loops through each view
+    for (GridView view : this.views) {
+      view.allDirty = true;
+    }
+  }
+
+  // marks the given columns of the given row as changed for the view of the
+  // named layer, "energy" or "seams", if it has been drawn
+  void touchLayer(String layer, int row, int from, int to) {
+    // Loops through each view, touching the layer's
+    for (GridView view : this.views) {
+      if (view.layer.equals(layer)) {
+        view.touch(row, from, to);
+      }
+    }
+  }
+
+  // marks every pixel as changed for the view of the named layer, if it has
+  // been drawn
+  void touchLayer(String layer) {
+    // Loops through each view, touching the layer's
+    for (GridView view : this.views) {
+      if (view.layer.equals(layer)) {
+        view.allDirty = true;
+      }
+    }
+  }
+
+  // marks the pixels of the given seam as changed for the views
+  void touchSeam(Seam seam) {
+    if (this.views.isEmpty()) {
+      return;
+    }
+    // Loops through each pixel of the seam
+    for (int i = 0; i < seam.path.length; i += 1) {
+      if (seam.isHorizontal) {
+        this.touch(seam.path[i], i, i + 1);
+      }
+      else {
+        this.touch(i, seam.path[i], seam.path[i] + 1);
+      }
+    }
+  }
+
+  // marks every pixel from the given seam to the far edge of a grid of the
+  // given size as changed for the view, which are the pixels that move when
+  // the seam is removed or put back
+  void touchFrom(Seam seam, int gridWidth, int gridHeight) {
+    if (this.views.isEmpty()) {
+      return;
+    }
+    if (!seam.isHorizontal) {
+      // Loops through each row, from the seam's pixel to the end
+      for (int row = 0; row < gridHeight; row += 1) {
+        this.touch(row, seam.path[row], gridWidth);
+      }
+      return;
+    }
+    // the first and last column whose seam pixel is in each row
+    int[] first = new int[gridHeight];
+    int[] last = new int[gridHeight];
+    Arrays.fill(first, gridWidth);
+    // Loops through each column and notes its seam pixel's row
+    for (int col = 0; col < gridWidth; col += 1) {
+      first[seam.path[col]] = Math.min(first[seam.path[col]], col);
+      last[seam.path[col]] = Math.max(last[seam.path[col]], col + 1);
+    }
+    int from = gridWidth;
+    int to = 0;
+    // Loops down each row, where the columns that move are the ones whose
+    // seam pixel is at or above it
+    for (int row = 0; row < gridHeight; row += 1) {
+      from = Math.min(from, first[row]);
+      to = Math.max(to, last[row]);
+      if (from < to) {
+        this.touch(row, from, to);
+      }
+    }
+  }
+
+  // returns an opaque copy of this grid's colors as an image that can be saved
+  BufferedImage toImage() {
+    BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, this.width, this.height, this.colors, 0, this.stride);
+    return image;
+  }
+
+  // throws if this grid cannot be carved down to the given size
+  void checkTarget(int targetWidth, int targetHeight) {
+    if (targetWidth < 1 || targetHeight < 1 || targetWidth > this.width
+        || targetHeight > this.height) {
+      throw new IllegalArgumentException("can only carve down to a smaller size");
+    }
+  }
+
+  // removes vertical and then horizontal seams until this grid is the given
+  // size, and returns the seams removed in order
+  ArrayList<Seam> carveTo(int targetWidth, int targetHeight) {
+    return this.carveTo(targetWidth, targetHeight, 1);
+  }
+
+  // removes vertical and then horizontal seams until this grid is the given
+  // size, taking up to the given number of seams from each seam table, and
+  // returns the seams removed in order
+  ArrayList<Seam> carveTo(int targetWidth, int targetHeight, int seamsPerPass) {
+    this.checkTarget(targetWidth, targetHeight);
+    if (seamsPerPass < 1) {
+      throw new IllegalArgumentException("need at least one seam per pass");
+    }
+    this.clearHighlight();
+    ArrayList<Seam> trace = new ArrayList<Seam>();
+    // Loops until the grid is narrow enough
+    while (this.width > targetWidth) {
+      trace.addAll(this.removeSeams(false, Math.min(seamsPerPass, this.width - targetWidth)));
+    }
+    // Loops until the grid is short enough
+    while (this.height > targetHeight) {
+      trace.addAll(this.removeSeams(true, Math.min(seamsPerPass, this.height - targetHeight)));
+    }
+    return trace;
+  }
+
+  // removes seams until this grid is the given size, each time removing the
+  // cheaper of the cheapest vertical and horizontal seams, and returns the
+  // seams removed in order
+  ArrayList<Seam> carveGreedy(int targetWidth, int targetHeight) {
+    this.checkTarget(targetWidth, targetHeight);
+    this.clearHighlight();
+    ArrayList<Seam> trace = new ArrayList<Seam>();
+    // Loops until the grid is the target size
+    while (this.width > targetWidth || this.height > targetHeight) {
+      if (this.width == targetWidth) {
+        trace.add(this.removeSeam(true));
+      }
+      else if (this.height == targetHeight) {
+        trace.add(this.removeSeam(false));
+      }
+      else {
+        trace.add(this.removeSeam(this.planCheaperSeam().isHorizontal));
+      }
+    }
+    return trace;
+  }
+
+  // removes seams in the order that removes the least total energy on the way
+  // to the given size, and returns the seams removed in order
+  ArrayList<Seam> carveOptimal(int targetWidth, int targetHeight) {
+    return this.carveInOrder(this.optimalOrder(targetWidth, targetHeight));
+  }
+
+  // removes a seam in each of the given directions, "v" or "h", in order, and
+  // returns the seams removed
+  ArrayList<Seam> carveInOrder(ArrayList<String> order) {
+    this.clearHighlight();
+    ArrayList<Seam> trace = new ArrayList<Seam>();
+    // Loops through each direction and removes a seam that way
+    for (String dir : order) {
+      if (!dir.equals("h") && !dir.equals("v")) {
+        throw new IllegalArgumentException("not real direction");
+      }
+      if ((dir.equals("h") && this.height == 1) || (dir.equals("v") && this.width == 1)) {
+        throw new IllegalArgumentException("can only carve down to a smaller size");
+      }
+      trace.add(this.removeSeam(dir.equals("h")));
+    }
+    return trace;
+  }
+
+  // returns the order of "v" and "h" removals that carves this grid down to the
+  // given size while removing the least total energy
+  // this is the transport map dynamic program: cost[r][c] is the least energy
+  // of removing r horizontal and c vertical seams, reached either by a
+  // horizontal seam from (r - 1, c) or by a vertical seam from (r, c - 1), and
+  // the grid each cell leaves behind is kept for one row of cells, in one
+  // scratch grid per column: a cell reached by a horizontal seam carves the
+  // grid of the cell above in place, and one reached by a vertical seam copies
+  // the grid of the cell before it over that one first
+  // it carves a grid for every cell, so it is meant for small images or small
+  // reductions, where carveGreedy is the cheap approximation
+  ArrayList<String> optimalOrder(int targetWidth, int targetHeight) {
+    this.checkTarget(targetWidth, targetHeight);
+    this.clearHighlight();
+    int rows = this.height - targetHeight;
+    int cols = this.width - targetWidth;
+    double[][] cost = new double[rows + 1][cols + 1];
+    // whether each cell is reached by removing a horizontal seam
+    boolean[][] byHorizontal = new boolean[rows + 1][cols + 1];
+    Grid[] grids = new Grid[cols + 1];
+    // Loops through each count of horizontal seams, then of vertical seams,
+    // choosing the cheaper way to get there and preferring vertical on ties
+    for (int r = 0; r <= rows; r += 1) {
+      for (int c = 0; c <= cols; c += 1) {
+        if (r == 0 && c == 0) {
+          grids[c] = this.copy();
+          grids[c].useJournal(false);
+          continue;
+        }
+        Seam vertical = null;
+        Seam horizontal = null;
+        double viaVertical = Double.POSITIVE_INFINITY;
+        double viaHorizontal = Double.POSITIVE_INFINITY;
+        if (c > 0) {
+          vertical = grids[c - 1].findMinSeam(false);
+          viaVertical = cost[r][c - 1] + vertical.totalWeight;
+        }
+        if (r > 0) {
+          horizontal = grids[c].findMinSeam(true);
+          viaHorizontal = cost[r - 1][c] + horizontal.totalWeight;
+        }
+        if (viaVertical <= viaHorizontal) {
+          cost[r][c] = viaVertical;
+          if (grids[c] == null) {
+            grids[c] = grids[c - 1].copy();
+            grids[c].useJournal(false);
+          }
+          else {
+            grids[c].copyFrom(grids[c - 1]);
+          }
+          grids[c].removeFound(vertical);
+        }
+        else {
+          cost[r][c] = viaHorizontal;
+          byHorizontal[r][c] = true;
+          grids[c].removeFound(horizontal);
+        }
+      }
+    }
+
+    ArrayList<String> order = new ArrayList<String>();
+    int r = rows;
+    int c = cols;
+    // Loops backwards from the target size, following how each cell was reached
+    while (r > 0 || c > 0) {
+      if (byHorizontal[r][c]) {
+        order.add(0, "h");
+        r -= 1;
+      }
+      else {
+        order.add(0, "v");
+        c -= 1;
+      }
+    }
+    return order;
+  }
+
+  // returns a new grid with the same colors as this one, whose energy and
+  // seams are computed the same way
+  Grid copy() {
+    int[] compact = new int[this.width * this.height];
+    // Loops through each row and copies its colors
+    for (int row = 0; row < this.height; row += 1) {
+      System.arraycopy(this.colors, this.index(row, 0), compact, row * this.width, this.width);
+    }
+    Grid copy = new Grid(compact, this.width, this.height);
+    copy.forwardEnergy = this.forwardEnergy;
+    if (this.mask != null) {
+      copy.mask = new SeamMask(copy.baselineSize, this.mask.weight);
+      this.carryMask(copy.mask);
+      copy.fitMasked();
+    }
+    if (copy.energyFunction.name().equals(this.energyFunction.name())) {
+      copy.energyFunction = this.energyFunction;
+    }
+    else {
+      copy.useEnergy(this.energyFunction);
+    }
+    return copy;
+  }
+
+  // makes this grid a copy of the given grid as it is now, seam tables and
+  // baseline included, reusing this grid's arrays if they are large enough,
+  // so that a search trying many carvings needs only a few grids
+  // the copy shares the given grid's mask and forgets the seams it removed
+  void copyFrom(Grid other) {
+    int size = other.width * other.height;
+    if (this.colors.length < size) {
+      this.colors = new int[size];
+      this.brightness = new float[size];
+      this.energy = new float[size];
+      this.totalWeight = new float[size];
+      this.cameFrom = new byte[size];
+      this.origin = new int[size];
+    }
+    boolean keepsOther = other.otherAccumulated.length() > 0;
+    if (keepsOther && (this.otherWeight == null
+        || this.otherWeight.length != this.totalWeight.length)) {
+      this.otherWeight = new float[this.totalWeight.length];
+      this.otherFrom = new byte[this.totalWeight.length];
+    }
+    if (other.luma == null) {
+      this.luma = null;
+    }
+    else if (this.luma == null || this.luma.length != this.colors.length) {
+      this.luma = new byte[this.colors.length];
+    }
+    this.masked = null;
+    this.otherMasked = null;
+    if (other.masked != null) {
+      this.masked = new int[this.totalWeight.length];
+      if (keepsOther) {
+        this.otherMasked = new int[this.totalWeight.length];
+      }
+    }
+    this.clearHighlight();
+    this.width = other.width;
+    this.height = other.height;
+    this.stride = other.width;
+    // Loops through each row and copies it to where it goes in this grid
+    for (int row = 0; row < this.height; row += 1) {
+      int from = other.index(row, 0);
+      int to = row * this.stride;
+      System.arraycopy(other.colors, from, this.colors, to, this.width);
+      System.arraycopy(other.brightness, from, this.brightness, to, this.width);
+      if (this.luma != null) {
+        System.arraycopy(other.luma, from, this.luma, to, this.width);
+      }
+      System.arraycopy(other.energy, from, this.energy, to, this.width);
+      System.arraycopy(other.totalWeight, from, this.totalWeight, to, this.width);
+      System.arraycopy(other.cameFrom, from, this.cameFrom, to, this.width);
+      System.arraycopy(other.origin, from, this.origin, to, this.width);
+      if (keepsOther) {
+        System.arraycopy(other.otherWeight, from, this.otherWeight, to, this.width);
+        System.arraycopy(other.otherFrom, from, this.otherFrom, to, this.width);
+      }
+      if (this.masked != null) {
+        System.arraycopy(other.masked, from, this.masked, to, this.width);
+      }
+      if (this.otherMasked != null) {
+        System.arraycopy(other.otherMasked, from, this.otherMasked, to, this.width);
+      }
+    }
+    this.accumulated = other.accumulated;
+    this.otherAccumulated = other.otherAccumulated;
+    this.forwardEnergy = other.forwardEnergy;
+    this.baselineSize = other.baselineSize;
+    this.mask = other.mask;
+    this.pyramid = other.pyramid;
+    this.energyFunction = other.energyFunction;
+    this.maxEnergy = other.maxEnergy;
+    this.maxEnergyStale = other.maxEnergyStale;
+    this.maxWeight = other.maxWeight;
+    this.maxWeightStale = other.maxWeightStale;
+    if (this.removedSeams != null) {
+      this.removedSeams.clear();
+    }
+    this.history = null;
+    this.shared = null;
+    this.version += 1;
+    this.touchAll();
+  }
+
+  // removes the given seam, found on this grid as it is now
+  void removeFound(Seam seam) {
+    this.plan = new SeamPlan(new Seam(seam.isHorizontal, seam.path, seam.totalWeight),
+        this.version);
+    this.removeSeam(seam.isHorizontal);
+  }
+
+  // returns the order in which seams in the given direction remove the pixels
+  // of this grid, found by removing every seam but the last from a copy of
+  // it, the given number of seams per seam table
+  SeamIndex buildSeamIndex(boolean isHorizontal, int seamsPerPass) {
+    if (seamsPerPass < 1) {
+      throw new IllegalArgumentException("need at least one seam per pass");
+    }
+    this.clearHighlight();
+    SeamIndex index = new SeamIndex(this, isHorizontal);
+    Grid work = this.copy();
+    // the seams are never put back, so there is nothing to keep them for
+    work.useJournal(false);
+    int removed = 0;
+    // Loops until only one pixel is left across, ranking each pixel removed
+    while (removed < index.across() - 1) {
+      ArrayList<Seam> seams = work.removeSeams(isHorizontal,
+          Math.min(seamsPerPass, index.across() - 1 - removed));
+      // Loops through each seam removed this pass and ranks its pixels
+      for (Seam seam : seams) {
+        for (int i = 0; i < seam.origins.length; i += 1) {
+          index.order[seam.origins[i]] = removed;
+        }
+        removed += 1;
+      }
+    }
+    return index;
+  }
+
+  // accumulates the seam weight of the given pixel from the cheapest pixel above
+  // it, preferring top left, then top, then top right on ties, and returns
+  // whether its weight or where it came from changed
+  boolean accumulateVertical(int row, int col) {
+    if (this.masked != null) {
+      return this.accumulateMasked(false, row, col);
+    }
+    if (this.forwardEnergy) {
+      return this.accumulateVerticalForward(row, col);
+    }
+    int here = this.index(row, col);
+    byte from = 0;
+    float min = 0;
+    if (row > 0) {
+      int above = here - this.stride;
+      min = this.totalWeight[above];
+      if (col > 0 && this.totalWeight[above - 1] <= min) {
+        from = -1;
+        min = this.totalWeight[above - 1];
+      }
+      if (col < this.width - 1 && this.totalWeight[above + 1] < min) {
+        from = 1;
+        min = this.totalWeight[above + 1];
+      }
+    }
+    float weight = min + this.energy[here];
+    boolean changed = weight != this.totalWeight[here] || from != this.cameFrom[here];
+    this.totalWeight[here] = weight;
+    this.cameFrom[here] = from;
+    return changed;
+  }
+
+  // accumulates the seam weight of the given pixel from the cheapest pixel to
+  // the left of it, preferring left top, then left, then left bottom on ties,
+  // and returns whether its weight or where it came from changed
+  boolean accumulateHorizontal(int row, int col) {
+    if (this.masked != null) {
+      return this.accumulateMasked(true, row, col);
+    }
+    if (this.forwardEnergy) {
+      return this.accumulateHorizontalForward(row, col);
+    }
+    int here = this.index(row, col);
+    byte from = 0;
+    float min = 0;
+    if (col > 0) {
+      int left = here - 1;
+      min = this.totalWeight[left];
+      if (row > 0 && this.totalWeight[left - this.stride] <= min) {
+        from = -1;
+        min = this.totalWeight[left - this.stride];
+      }
+      if (row < this.height - 1 && this.totalWeight[left + this.stride] < min) {
+        from = 1;
+        min = this.totalWeight[left + this.stride];
+      }
+    }
+    float weight = min + this.energy[here];
+    boolean changed = weight != this.totalWeight[here] || from != this.cameFrom[here];
+    this.totalWeight[here] = weight;
+    this.cameFrom[here] = from;
+    return changed;
+  }
+
+  // accumulates the forward energy of the given pixel, the difference in
+  // brightness across each edge that removing it would make, from the pixel
+  // above that makes the cheapest seam, with the same preferences on ties as
+  // accumulateVertical, and returns whether its weight or where it came from
+  // changed
+  // removing it always joins its left and right neighbors; coming from the
+  // top left also joins the pixel above to its left neighbor, and coming from
+  // the top right joins it to its right neighbor
+  // everything outside the grid is black, as it is for the sobel energy, so
+  // that cropping an edge is not free
+  boolean accumulateVerticalForward(int row, int col) {
+    float[] lum = this.brightness;
+    float[] weights = this.totalWeight;
+    int here = this.index(row, col);
+    boolean hasLeft = col > 0;
+    boolean hasRight = col < this.width - 1;
+    float left = 0;
+    float right = 0;
+    if (hasLeft) {
+      left = lum[here - 1];
+    }
+    if (hasRight) {
+      right = lum[here + 1];
+    }
+    float joined = Math.abs(right - left);
+    byte from = 0;
+    float min = joined;
+    if (row > 0) {
+      int above = here - this.stride;
+      min = weights[above] + joined;
+      if (hasLeft) {
+        float cost = weights[above - 1] + joined + Math.abs(lum[above] - left);
+        if (cost <= min) {
+          from = -1;
+          min = cost;
+        }
+      }
+      if (hasRight) {
+        float cost = weights[above + 1] + joined + Math.abs(lum[above] - right);
+        if (cost < min) {
+          from = 1;
+          min = cost;
+        }
+      }
+    }
+    boolean changed = min != weights[here] || from != this.cameFrom[here];
+    weights[here] = min;
+    this.cameFrom[here] = from;
+    return changed;
+  }
+
+  // accumulates the forward energy of the given pixel from the pixel to the
+  // left of it that makes the cheapest seam, as accumulateVerticalForward
+  // does turned on its side, and returns whether its weight or where it came
+  // from changed
+  boolean accumulateHorizontalForward(int row, int col) {
+    float[] lum = this.brightness;
+    float[] weights = this.totalWeight;
+    int here = this.index(row, col);
+    boolean hasTop = row > 0;
+    boolean hasBottom = row < this.height - 1;
+    float top = 0;
+    float bottom = 0;
+    if (hasTop) {
+      top = lum[here - this.stride];
+    }
+    if (hasBottom) {
+      bottom = lum[here + this.stride];
+    }
+    float joined = Math.abs(bottom - top);
+    byte from = 0;
+    float min = joined;
+    if (col > 0) {
+      int left = here - 1;
+      min = weights[left] + joined;
+      if (hasTop) {
+        float cost = weights[left - this.stride] + joined + Math.abs(lum[left] - top);
+        if (cost <= min) {
+          from = -1;
+          min = cost;
+        }
+      }
+      if (hasBottom) {
+        float cost = weights[left + this.stride] + joined + Math.abs(lum[left] - bottom);
+        if (cost < min) {
+          from = 1;
+          min = cost;
+        }
+      }
+    }
+    boolean changed = min != weights[here] || from != this.cameFrom[here];
+    weights[here] = min;
+    this.cameFrom[here] = from;
+    return changed;
+  }
+
+  // accumulates the seam weight of the given pixel of a masked grid in the
+  // given direction, from its energy or forward energy as the other
+  // accumulate methods do, with the same preferences on ties, and returns
+  // whether its weight, its count of masked pixels or where it came from
+  // changed
+  // a seam crossing fewer masked pixels is cheaper whatever its weight, so the
+  // weight only adds up energy and stays as exact as without a mask
+  boolean accumulateMasked(boolean isHorizontal, int row, int col) {
+    float[] weights = this.totalWeight;
+    int[] counts = this.masked;
+    int here = this.index(row, col);
+    int back = this.stride;
+    int side = 1;
+    boolean hasBack = row > 0;
+    boolean hasBefore = col > 0;
+    boolean hasAfter = col < this.width - 1;
+    if (isHorizontal) {
+      back = 1;
+      side = this.stride;
+      hasBack = col > 0;
+      hasBefore = row > 0;
+      hasAfter = row < this.height - 1;
+    }
+    float joined = 0;
+    float beforeJoined = 0;
+    float afterJoined = 0;
+    if (this.forwardEnergy) {
+      float[] lum = this.brightness;
+      float before = 0;
+      float after = 0;
+      if (hasBefore) {
+        before = lum[here - side];
+      }
+      if (hasAfter) {
+        after = lum[here + side];
+      }
+      joined = Math.abs(after - before);
+      if (hasBack) {
+        beforeJoined = Math.abs(lum[here - back] - before);
+        afterJoined = Math.abs(lum[here - back] - after);
+      }
+    }
+    byte from = 0;
+    float min = joined;
+    int count = 0;
+    if (hasBack) {
+      int prev = here - back;
+      min = weights[prev] + joined;
+      count = counts[prev];
+      if (hasBefore) {
+        float cost = weights[prev - side] + joined + beforeJoined;
+        if (!this.isCheaper(count, min, counts[prev - side], cost)) {
+          from = -1;
+          min = cost;
+          count = counts[prev - side];
+        }
+      }
+      if (hasAfter) {
+        float cost = weights[prev + side] + joined + afterJoined;
+        if (this.isCheaper(counts[prev + side], cost, count, min)) {
+          from = 1;
+          min = cost;
+          count = counts[prev + side];
+        }
+      }
+    }
+    if (!this.forwardEnergy) {
+      min += this.energy[here];
+    }
+    count += this.mask.countOf(this.origin[here]);
+    boolean changed = min != weights[here] || count != counts[here]
+        || from != this.cameFrom[here];
+    weights[here] = min;
+    counts[here] = count;
+    this.cameFrom[here] = from;
+    return changed;
+  }
+
+  // returns whether a seam crossing the given count of masked pixels at the
+  // given weight is cheaper than one crossing the other count at the other
+  // weight, counting the masked pixels first
+  boolean isCheaper(int count, float weight, int otherCount, float otherWeight) {
+    return count < otherCount || count == otherCount && weight < otherWeight;
+  }
+
+  // returns whether the cheapest seam in the table ending at the first given
+  // index is cheaper than the one ending at the second
+  boolean isCheaperAt(int idx, int other) {
+    if (this.masked != null) {
+      return this.isCheaper(this.masked[idx], this.totalWeight[idx],
+          this.masked[other], this.totalWeight[other]);
+    }
+    return this.totalWeight[idx] < this.totalWeight[other];
+  }
+
+  // returns what the cheapest seam in the table ending at the given index
+  // costs, its mask's weight included
+  double seamCostAt(int idx) {
+    if (this.masked != null) {
+      return this.totalWeight[idx] + (double) this.masked[idx] * this.mask.weight;
+    }
+    return this.totalWeight[idx];
+  }
+
+  // makes the arrays that count the masked pixels of seams, if there is a mask
+  // and they are not as large as the seam table, which makes it out of date
+  void fitMasked() {
+    if (this.mask == null) {
+      this.masked = null;
+      this.otherMasked = null;
+    }
+    else if (this.masked == null || this.masked.length != this.totalWeight.length) {
+      this.masked = new int[this.totalWeight.length];
+      this.otherMasked = null;
+      this.forgetSeamTables();
+    }
+  }
+
+  // makes seams cost their forward energy, or the energy of their pixels,
+  // which throws away the seam table and the seam planned next
+  void useForwardEnergy(boolean forwardEnergy) {
+    if (forwardEnergy != this.forwardEnergy) {
+      this.forwardEnergy = forwardEnergy;
+      this.forgetSeamTables();
+      this.version += 1;
+    }
+  }
+
+  // computes every pixel's energy with the given function from now on,
+  // recomputing it now, after which the seam table is out of date
+  void useEnergy(IEnergy energyFunction) {
+    this.clearHighlight();
+    this.energyFunction = energyFunction;
+    // the new function keeps the luma again if it reads it
+    this.luma = null;
+    this.initializeEnergy();
+    this.forgetSeamTables();
+    this.version += 1;
+  }
+
+  // accumulates every pixel of the given row, or column if horizontal, which
+  // has the given length
+  // each pixel only depends on the line before, so long lines are split into
+  // chunks across the fork-join pool, which returns once every chunk is done
+  void accumulateLine(boolean isHorizontal, int line, int length) {
+    if (length < this.parallelThreshold) {
+      new AccumulateChunk(this, isHorizontal, line, 0, length).compute();
+    }
+    else {
+      ForkJoinPool.commonPool().invoke(new AccumulateChunk(this, isHorizontal, line, 0, length));
+    }
+  }
+
+  // swaps the seam table with the other direction's, making the other one
+  // first if there is none as large as the arrays
+  void swapTables() {
+    if (this.otherWeight == null || this.otherWeight.length != this.totalWeight.length) {
+      this.otherWeight = new float[this.totalWeight.length];
+      this.otherFrom = new byte[this.totalWeight.length];
+      this.otherAccumulated = "";
+    }
+    if (this.masked != null && this.otherMasked == null) {
+      this.otherMasked = new int[this.masked.length];
+      this.otherAccumulated = "";
+    }
+    int[] counts = this.masked;
+    this.masked = this.otherMasked;
+    this.otherMasked = counts;
+    float[] weights = this.totalWeight;
+    byte[] from = this.cameFrom;
+    String held = this.accumulated;
+    this.totalWeight = this.otherWeight;
+    this.cameFrom = this.otherFrom;
+    this.accumulated = this.otherAccumulated;
+    this.otherWeight = weights;
+    this.otherFrom = from;
+    this.otherAccumulated = held;
+  }
+
+  // marks both seam tables out of date
+  void forgetSeamTables() {
+    this.accumulated = "";
+    this.otherAccumulated = "";
+  }
+
+  // accumulates the seam weights top to bottom, unless the other direction's
+  // table already holds them, and returns the weights of the last row
+  float[] findVerticalSeams() {
+    if (!this.accumulated.equals("v")) {
+      if (this.otherAccumulated.equals("v")) {
+        this.swapTables();
+      }
+      else {
+        // Loops through each row, accumulating from the row above
+        for (int row = 0; row < this.height; row += 1) {
+          this.accumulateLine(false, row, this.width);
+        }
+        this.accumulated = "v";
+      }
+      this.maxWeightStale = true;
+      this.touchLayer("seams");
+    }
+
+    float[] last = new float[this.width];
+    System.arraycopy(this.totalWeight, this.index(this.height - 1, 0), last, 0, this.width);
+    return last;
+  }
+
+  // accumulates the seam weights left to right, unless the other direction's
+  // table already holds them, and returns the weights of the last column
+  float[] findHorizontalSeams() {
+    if (!this.accumulated.equals("h")) {
+      if (this.otherAccumulated.equals("h")) {
+        this.swapTables();
+      }
+      else {
+        // Loops through each column, accumulating from the column to the left
+        for (int col = 0; col < this.width; col += 1) {
+          this.accumulateLine(true, col, this.height);
+        }
+        this.accumulated = "h";
+      }
+      this.maxWeightStale = true;
+      this.touchLayer("seams");
+    }
+
+    float[] last = new float[this.height];
+    // Loops through the last column and collects its weights
+    for (int row = 0; row < this.height; row += 1) {
+      last[row] = this.totalWeight[this.index(row, this.width - 1)];
+    }
+    return last;
+  }
+
+  // updates the accumulated seam weights after the given seam was removed or
+  // reinserted, and returns how many pixels were recomputed
+  // when the table holds seams of the same direction, only the band around the
+  // seam and the cone below it whose weights actually change are recomputed;
+  // otherwise the table is updated across the seam while both directions'
+  // tables are kept, and marked out of date when only one is
+  int reaccumulate(Seam seam) {
+    if (!this.accumulated.equals(seam.isHorizontal ? "h" : "v")) {
+      if (this.accumulated.length() > 0 && this.otherAccumulated.length() > 0) {
+        return this.reaccumulateAcross(seam);
+      }
+      this.accumulated = "";
+      return 0;
+    }
+    int recomputed = 0;
+    int length = seam.path.length;
+    int across = seam.isHorizontal ? this.height : this.width;
+    // the first and last changed pixel of the previous step
+    int lo = across;
+    int hi = -1;
+    // Loops through each step along the seam, recomputing the seam's band and
+    // everything below what changed in the previous step
+    for (int i = 0; i < length; i += 1) {
+      int from = Math.max(0, Math.min(this.seamMin(seam, i) - 1, lo - 1));
+      int to = Math.min(across - 1, Math.max(this.seamMax(seam, i) + 1, hi + 1));
+      recomputed += to - from + 1;
+      lo = across;
+      hi = -1;
+      for (int j = from; j <= to; j += 1) {
+        boolean changed;
+        int idx = this.indexAt(seam.isHorizontal, i, j);
+        float old = this.totalWeight[idx];
+        if (seam.isHorizontal) {
+          changed = this.accumulateHorizontal(j, i);
+        }
+        else {
+          changed = this.accumulateVertical(i, j);
+        }
+        this.noteWeight(idx, old);
+        if (changed) {
+          lo = Math.min(lo, j);
+          hi = j;
+          if (seam.isHorizontal) {
+            this.touchLayer("seams", j, i, i + 1);
+          }
+        }
+      }
+      if (!seam.isHorizontal && hi >= lo) {
+        this.touchLayer("seams", i, lo, hi + 1);
+      }
+    }
+    return recomputed;
+  }
+
+  // updates the seam table, which holds seams across the given seam, after
+  // the seam was removed, and returns how many pixels were recomputed
+  // the lines of the table before the seam's first pixel are untouched, so it
+  // recomputes from the line before that on, and stops at the first line past
+  // the seam's last pixel that comes out the same, since each line only
+  // depends on the line before it
+  int reaccumulateAcross(Seam seam) {
+    boolean isHorizontal = !seam.isHorizontal;
+    int length = this.height;
+    int across = this.width;
+    if (isHorizontal) {
+      length = this.width;
+      across = this.height;
+    }
+    int first = length;
+    int last = -1;
+    // Loops through the seam, finding the first and last line it crosses
+    for (int position : seam.path) {
+      first = Math.min(first, position);
+      last = Math.max(last, position);
+    }
+    int recomputed = 0;
+    // Loops through each line from just before the seam, until a line past it
+    // comes out the same
+    for (int line = Math.max(0, first - 1); line < length; line += 1) {
+      int lo = across;
+      int hi = -1;
+      for (int j = 0; j < across; j += 1) {
+        boolean changed;
+        int idx = this.indexAt(isHorizontal, line, j);
+        float old = this.totalWeight[idx];
+        if (isHorizontal) {
+          changed = this.accumulateHorizontal(j, line);
+        }
+        else {
+          changed = this.accumulateVertical(line, j);
+        }
+        this.noteWeight(idx, old);
+        if (changed) {
+          lo = Math.min(lo, j);
+          hi = j;
+          if (isHorizontal) {
+            this.touchLayer("seams", j, line, line + 1);
+          }
+        }
+      }
+      recomputed += across;
+      if (!isHorizontal && hi >= lo) {
+        this.touchLayer("seams", line, lo, hi + 1);
+      }
+      if (hi < 0 && line > last + 1) {
+        break;
+      }
+    }
+    return recomputed;
+  }
+
+  // updates the other direction's seam table too, if it is kept, after the
+  // given seams were removed, as reaccumulateAll does for the seam table
+  // the largest weight is kept for the seam table alone
+  void reaccumulateOther(Seam[] seams) {
+    if (this.otherAccumulated.length() == 0) {
+      return;
+    }
+    double max = this.maxWeight;
+    boolean stale = this.maxWeightStale;
+    this.swapTables();
+    this.reaccumulateAll(seams);
+    this.swapTables();
+    this.maxWeight = max;
+    this.maxWeightStale = stale;
+  }
+
+  // returns whether seams are found exactly in the seam table: always when
+  // they cost their forward energy, and otherwise unless there is a pyramid
+  // search
+  boolean findsExactly() {
+    return this.pyramid == null || this.forwardEnergy;
+  }
+
+  // returns the seam to remove next: the one the pyramid search finds if
+  // there is one, and otherwise the one with the least accumulated energy
+  // seams that cost their forward energy are always found exactly
+  Seam findMinSeam(boolean isHorizontal) {
+    if (!this.findsExactly()) {
+      return this.pyramid.findMinSeam(this, isHorizontal);
+    }
+    return this.findExactSeam(isHorizontal);
+  }
+
+  // finds seams coarse to fine with the given search from now on, or exactly
+  // if it is null
+  // the seam tables are forgotten, so that they are not updated after every
+  // seam while the search does not read them, and built again if they are
+  // it trades quality for time: on images/balloons.jpg 49 of 50 seams it
+  // found differed from the exact one, and they cost 17% more energy with
+  // blocks 4 pixels on a side and a band of 4, and 23% more with 8 and 8
+  void usePyramid(PyramidSearch pyramid) {
+    this.pyramid = pyramid;
+    this.forgetSeamTables();
+    this.version += 1;
+  }
+
+  // returns what removing the pixel at the given index adds to a seam's
+  // weight: its energy, and its mask's bias if it has one
+  double costAt(int idx) {
+    if (this.mask != null) {
+      return this.energy[idx] + this.mask.biasOf(this.origin[idx]);
+    }
+    return this.energy[idx];
+  }
+
+  // returns the seam with the least accumulated energy to remove
+  Seam findExactSeam(boolean isHorizontal) {
+    float[] seams;
+    if (isHorizontal) {
+      seams = this.findHorizontalSeams();
+    }
+    else {
+      seams = this.findVerticalSeams();
+    }
+    int last = this.height - 1;
+    if (isHorizontal) {
+      last = this.width - 1;
+    }
+    int min = 0;
+    // Loops through each seam and updates minimum seam
+    for (int i = 0; i < seams.length; i += 1) {
+      if (this.masked == null && seams[i] < seams[min] || this.masked != null
+          && this.isCheaperAt(this.indexAt(isHorizontal, last, i),
+              this.indexAt(isHorizontal, last, min))) {
+        min = i;
+      }
+    }
+
+    int[] path = this.tracePath(isHorizontal, min);
+    return new Seam(isHorizontal, path, this.seamCostAt(this.indexAt(isHorizontal, last, min)));
+  }
+
+  // returns the path of the seam in the accumulated table that ends at the
+  // given position of the last row, or last column if horizontal
+  int[] tracePath(boolean isHorizontal, int end) {
+    int[] path;
+    if (isHorizontal) {
+      path = new int[this.width];
+      // Loops backwards through the columns, following where the seam came from
+      for (int col = this.width - 1; col >= 0; col -= 1) {
+        path[col] = end;
+        end += this.cameFrom[this.index(end, col)];
+      }
+    }
+    else {
+      path = new int[this.height];
+      // Loops backwards through the rows, following where the seam came from
+      for (int row = this.height - 1; row >= 0; row -= 1) {
+        path[row] = end;
+        end += this.cameFrom[this.index(row, end)];
+      }
+    }
+    return path;
+  }
+
+  // returns up to the given number of seams in the given direction that share
+  // no pixel and never cross, found in one seam table, cheapest end first
+  // each seam follows the table from its end, and where that runs into a
+  // pixel already taken it steps to the cheapest free neighbor instead, so the
+  // seams stay in the same order across every row (or column)
+  ArrayList<Seam> findDisjointSeams(boolean isHorizontal, int count) {
+    float[] seams;
+    if (isHorizontal) {
+      seams = this.findHorizontalSeams();
+    }
+    else {
+      seams = this.findVerticalSeams();
+    }
+    // each end's weight and position packed so that sorting orders them by
+    // weight and then position, since weights are never negative
+    long[] ends = new long[seams.length];
+    // Loops through each end of the last line and packs it
+    for (int i = 0; i < seams.length; i += 1) {
+      ends[i] = ((long) Float.floatToIntBits(seams[i]) << 32) | i;
+    }
+    Arrays.sort(ends);
+    if (this.masked != null) {
+      int last = this.height - 1;
+      if (isHorizontal) {
+        last = this.width - 1;
+      }
+      int[] counts = new int[seams.length];
+      Long[] byCount = new Long[ends.length];
+      // Loops through each end, boxing it and noting its count of masked pixels
+      for (int i = 0; i < ends.length; i += 1) {
+        byCount[i] = ends[i];
+        counts[i] = this.masked[this.indexAt(isHorizontal, last, i)];
+      }
+      // the sort is stable, so ends crossing as many masked pixels stay in
+      // order of weight
+      Arrays.sort(byCount, (a, b) -> Integer.compare(counts[(int) (long) a],
+          counts[(int) (long) b]));
+      // Loops through each end and unboxes it
+      for (int i = 0; i < ends.length; i += 1) {
+        ends[i] = byCount[i];
+      }
+    }
+
+    boolean[] taken = new boolean[this.colors.length];
+    ArrayList<Seam> found = new ArrayList<Seam>();
+    // Loops through the ends from the cheapest, keeping each seam that does not
+    // touch one already kept
+    for (int i = 0; i < ends.length && found.size() < count; i += 1) {
+      int[] path = this.traceFreePath(isHorizontal, (int) ends[i], taken);
+      if (path != null) {
+        Seam seam = new Seam(isHorizontal, path, 0);
+        float weight = 0;
+        int crossed = 0;
+        // Loops through the seam, adding up its energy and taking its pixels
+        for (int step = 0; step < path.length; step += 1) {
+          weight += this.energy[this.indexOn(seam, step)];
+          if (this.mask != null) {
+            crossed += this.mask.countOf(this.origin[this.indexOn(seam, step)]);
+          }
+          taken[this.indexOn(seam, step)] = true;
+        }
+        seam.totalWeight = weight;
+        if (this.mask != null) {
+          seam.totalWeight += (double) crossed * this.mask.weight;
+        }
+        found.add(seam);
+      }
+    }
+    return found;
+  }
+
+  // returns the path from the given end of the last row (or column) back
+  // through the accumulated table that avoids the taken pixels without
+  // crossing a seam through them, or null if there is none
+  // it follows where each pixel came from while that is free, and otherwise
+  // the cheapest free neighbor, so an unblocked path is exactly the table's
+  int[] traceFreePath(boolean isHorizontal, int end, boolean[] taken) {
+    int length = this.height;
+    int across = this.width;
+    if (isHorizontal) {
+      length = this.width;
+      across = this.height;
+    }
+    int[] path = new int[length];
+    path[length - 1] = end;
+    if (taken[this.indexAt(isHorizontal, length - 1, end)]) {
+      return null;
+    }
+    // Loops backwards through each step, choosing where the path came from
+    for (int step = length - 1; step > 0; step -= 1) {
+      int here = path[step];
+      int best = here + this.cameFrom[this.indexAt(isHorizontal, step, here)];
+      if (!this.canStep(isHorizontal, step, here, best, across, taken)) {
+        best = -1;
+        // Loops through the three neighbors before this step, from the first
+        for (int next = here - 1; next <= here + 1; next += 1) {
+          if (this.canStep(isHorizontal, step, here, next, across, taken)
+              && (best < 0 || this.isCheaperAt(this.indexAt(isHorizontal, step - 1, next),
+                  this.indexAt(isHorizontal, step - 1, best)))) {
+            best = next;
+          }
+        }
+        if (best < 0) {
+          return null;
+        }
+      }
+      path[step - 1] = best;
+    }
+    return path;
+  }
+
+  // returns whether a path at the given position of the given step can come
+  // from the given position of the step before, which must be free and must
+  // not cross a taken path going the other way
+  boolean canStep(boolean isHorizontal, int step, int here, int next, int across,
+      boolean[] taken) {
+    return next >= 0 && next < across && !taken[this.indexAt(isHorizontal, step - 1, next)]
+        && (next == here || !(taken[this.indexAt(isHorizontal, step - 1, here)]
+            && taken[this.indexAt(isHorizontal, step, next)]));
+  }
+
+  // returns the index of the pixel at the given position of the given step of
+  // a seam in the given direction
+  int indexAt(boolean isHorizontal, int step, int position) {
+    if (isHorizontal) {
+      return this.index(position, step);
+    }
+    return this.index(step, position);
+  }
+
+  // returns the index of the given seam's pixel at the given step along it
+  int indexOn(Seam seam, int step) {
+    if (seam.isHorizontal) {
+      return this.index(seam.path[step], step);
+    }
+    return this.index(step, seam.path[step]);
+  }
+
+  // returns the plan for the next seam to remove in the given direction,
+  // computing it only if this grid changed since the last plan
+  // a seam planned in one direction alone stops keeping the other direction's
+  // seam table, which only comparing the two needs
+  SeamPlan planSeam(boolean isHorizontal) {
+    if (this.plan == null || this.plan.version != this.version
+        || this.plan.seam.isHorizontal != isHorizontal) {
+      this.otherAccumulated = "";
+      this.plan = new SeamPlan(this.findMinSeam(isHorizontal), this.version);
+    }
+    return this.plan;
+  }
+
+  // plans the cheaper of the cheapest vertical and horizontal seams, preferring
+  // vertical on ties, and returns it
+  // the direction the seam table already holds is searched first, and that
+  // table is then kept as the other one while the second direction is
+  // searched, so that each search finds its own table updated after the last
+  // seam rather than rebuilding it
+  Seam planCheaperSeam() {
+    if (this.width == 1 || this.height == 1) {
+      return this.planSeam(this.width == 1).seam;
+    }
+    boolean firstIsHorizontal = this.accumulated.equals("h");
+    Seam first = this.findMinSeam(firstIsHorizontal);
+    if (this.findsExactly()) {
+      this.swapTables();
+      this.maxWeightStale = true;
+      this.touchLayer("seams");
+    }
+    Seam second = this.findMinSeam(!firstIsHorizontal);
+    Seam vertical = first;
+    Seam horizontal = second;
+    if (firstIsHorizontal) {
+      vertical = second;
+      horizontal = first;
+    }
+    Seam cheaper = vertical;
+    if (horizontal.totalWeight < vertical.totalWeight) {
+      cheaper = horizontal;
+    }
+    this.plan = new SeamPlan(cheaper, this.version);
+    return cheaper;
+  }
+
+  // highlights the seam in red before removal
+  void highlightSeam(boolean isHorizontal) {
+    this.clearHighlight();
+    Seam seamToRemove = this.planSeam(isHorizontal).seam;
+    seamToRemove.colors = new int[seamToRemove.path.length];
+    // Loops through the seam, remembering each color and painting it red
+    for (int i = 0; i < seamToRemove.path.length; i += 1) {
+      seamToRemove.colors[i] = this.colors[this.indexOn(seamToRemove, i)];
+      this.colors[this.indexOn(seamToRemove, i)] = Color.RED.getRGB();
+    }
+    this.highlighted = seamToRemove;
+    this.touchSeam(seamToRemove);
+  }
+
+  // puts back the colors under the highlighted seam, if there is one
+  void clearHighlight() {
+    if (this.highlighted != null) {
+      // Loops through the highlighted seam and restores its colors
+      for (int i = 0; i < this.highlighted.path.length; i += 1) {
+        this.colors[this.indexOn(this.highlighted, i)] = this.highlighted.colors[i];
+      }
+      this.touchSeam(this.highlighted);
+      this.highlighted = null;
+    }
+  }
+
+  // removes the minimum seam and returns it, or null if there is no room for
+  // one
+  Seam removeSeamVertical() {
+    if (this.width > 1) {
+      this.clearHighlight();
+      Seam seamToRemove = this.planSeam(false).seam;
+      seamToRemove.colors = new int[this.height];
+      seamToRemove.origins = new int[this.height];
+
+      if (this.pyramid != null) {
+        this.pyramid.leaving(this, seamToRemove);
+      }
+      // Loops through each row and closes the gap left by the seam's pixel
+      for (int row = 0; row < this.height; row += 1) {
+        int idx = this.index(row, seamToRemove.path[row]);
+        int after = this.width - 1 - seamToRemove.path[row];
+        seamToRemove.colors[row] = this.colors[idx];
+        seamToRemove.origins[row] = this.origin[idx];
+        this.noteRemoved(idx);
+        System.arraycopy(this.colors, idx + 1, this.colors, idx, after);
+        System.arraycopy(this.brightness, idx + 1, this.brightness, idx, after);
+        if (this.luma != null) {
+          System.arraycopy(this.luma, idx + 1, this.luma, idx, after);
+        }
+        System.arraycopy(this.energy, idx + 1, this.energy, idx, after);
+        System.arraycopy(this.totalWeight, idx + 1, this.totalWeight, idx, after);
+        System.arraycopy(this.cameFrom, idx + 1, this.cameFrom, idx, after);
+        System.arraycopy(this.origin, idx + 1, this.origin, idx, after);
+        if (this.masked != null) {
+          System.arraycopy(this.masked, idx + 1, this.masked, idx, after);
+        }
+        if (this.otherAccumulated.length() > 0) {
+          System.arraycopy(this.otherWeight, idx + 1, this.otherWeight, idx, after);
+          System.arraycopy(this.otherFrom, idx + 1, this.otherFrom, idx, after);
+          if (this.otherMasked != null) {
+            System.arraycopy(this.otherMasked, idx + 1, this.otherMasked, idx, after);
+          }
+        }
+      }
+      this.touchFrom(seamToRemove, this.width, this.height);
+      this.width -= 1;
+      this.version += 1;
+      this.journal(seamToRemove);
+
+      this.updateEnergyAround(seamToRemove);
+      if (this.pyramid != null) {
+        this.pyramid.removed(this, seamToRemove);
+      }
+      this.reaccumulate(seamToRemove);
+      this.reaccumulateOther(new Seam[] {seamToRemove});
+      this.recordCheckpoint();
+      return seamToRemove;
+    }
+    return null;
+  }
+
+  // removes a horizontal seam and returns it, or null if there is no room for
+  // one
+  Seam removeSeamHorizontal() {
+    if (this.height > 1) {
+      this.clearHighlight();
+      Seam seamToRemove = this.planSeam(true).seam;
+      seamToRemove.colors = new int[this.width];
+      seamToRemove.origins = new int[this.width];
+      int top = this.height;
+      // Loops through each column and remembers the color being removed
+      for (int col = 0; col < this.width; col += 1) {
+        seamToRemove.colors[col] = this.colors[this.index(seamToRemove.path[col], col)];
+        seamToRemove.origins[col] = this.origin[this.index(seamToRemove.path[col], col)];
+        this.noteRemoved(this.index(seamToRemove.path[col], col));
+        top = Math.min(top, seamToRemove.path[col]);
+      }
+
+      if (this.pyramid != null) {
+        this.pyramid.leaving(this, seamToRemove);
+      }
+      // Loops through each row below the top of the seam, pulling up the pixels
+      // of the columns whose seam pixel is at or above it
+      for (int row = top; row < this.height - 1; row += 1) {
+        for (int col = 0; col < this.width; col += 1) {
+          if (seamToRemove.path[col] <= row) {
+            this.moveTo(this.index(row + 1, col), this.index(row, col));
+          }
+        }
+      }
+      this.touchFrom(seamToRemove, this.width, this.height);
+      this.height -= 1;
+      this.version += 1;
+      this.journal(seamToRemove);
+
+      this.updateEnergyAround(seamToRemove);
+      if (this.pyramid != null) {
+        this.pyramid.removed(this, seamToRemove);
+      }
+      this.reaccumulate(seamToRemove);
+      this.reaccumulateOther(new Seam[] {seamToRemove});
+      this.recordCheckpoint();
+      return seamToRemove;
+    }
+    return null;
+  }
+
+  // removes up to the given number of seams in the given direction that share
+  // no pixel, all found in one seam table and closed up in one pass, and
+  // returns them in the order they were recorded for undo
+  // they are recorded last to first, so each one's path is exactly where it
+  // would be had the seams been removed one at a time, and reinsert puts them
+  // back one at a time
+  // each seam after the cheapest is only roughly the one a fresh table would
+  // pick, which is the price of one table for many seams
+  ArrayList<Seam> removeSeams(boolean isHorizontal, int count) {
+    int across = this.width;
+    if (isHorizontal) {
+      across = this.height;
+    }
+    count = Math.min(count, across - 1);
+    ArrayList<Seam> removed = new ArrayList<Seam>();
+    if (count < 1) {
+      return removed;
+    }
+    if (count == 1) {
+      removed.add(this.removeSeam(isHorizontal));
+      return removed;
+    }
+    this.clearHighlight();
+    ArrayList<Seam> found = this.findDisjointSeams(isHorizontal, count);
+    // the seams from first to last along each line
+    Seam[] ordered = found.toArray(new Seam[found.size()]);
+    Arrays.sort(ordered, (a, b) -> Integer.compare(a.path[0], b.path[0]));
+    int k = ordered.length;
+
+    // Loops through the seams and remembers the colors being removed
+    for (Seam seam : ordered) {
+      seam.colors = new int[seam.path.length];
+      seam.origins = new int[seam.path.length];
+      for (int i = 0; i < seam.path.length; i += 1) {
+        seam.colors[i] = this.colors[this.indexOn(seam, i)];
+        seam.origins[i] = this.origin[this.indexOn(seam, i)];
+        this.noteRemoved(this.indexOn(seam, i));
+      }
+    }
+
+    // Loops through the seams, marking the pixels that move as the gaps close
+    for (Seam seam : ordered) {
+      this.touchFrom(seam, this.width, this.height);
+    }
+
+    if (isHorizontal) {
+      // how many seams each column has passed so far, which is how far its
+      // pixels move up
+      int[] shift = new int[this.width];
+      // Loops through each row that is kept, pulling every column's pixel up
+      // past the seams at or above it
+      for (int row = 0; row < this.height - k; row += 1) {
+        for (int col = 0; col < this.width; col += 1) {
+          while (shift[col] < k && ordered[shift[col]].path[col] <= row + shift[col]) {
+            shift[col] += 1;
+          }
+          if (shift[col] > 0) {
+            this.moveTo(this.index(row + shift[col], col), this.index(row, col));
+          }
+        }
+      }
+      this.height -= k;
+    }
+    else {
+      // Loops through each row and closes the gaps left by the seams' pixels
+      for (int row = 0; row < this.height; row += 1) {
+        int to = this.index(row, ordered[0].path[row]);
+        for (int j = 0; j < k; j += 1) {
+          int start = ordered[j].path[row] + 1;
+          int end = this.width;
+          if (j + 1 < k) {
+            end = ordered[j + 1].path[row];
+          }
+          int from = this.index(row, start);
+          System.arraycopy(this.colors, from, this.colors, to, end - start);
+          System.arraycopy(this.brightness, from, this.brightness, to, end - start);
+          if (this.luma != null) {
+            System.arraycopy(this.luma, from, this.luma, to, end - start);
+          }
+          System.arraycopy(this.energy, from, this.energy, to, end - start);
+          System.arraycopy(this.totalWeight, from, this.totalWeight, to, end - start);
+          System.arraycopy(this.cameFrom, from, this.cameFrom, to, end - start);
+          System.arraycopy(this.origin, from, this.origin, to, end - start);
+          if (this.masked != null) {
+            System.arraycopy(this.masked, from, this.masked, to, end - start);
+          }
+          if (this.otherAccumulated.length() > 0) {
+            System.arraycopy(this.otherWeight, from, this.otherWeight, to, end - start);
+            System.arraycopy(this.otherFrom, from, this.otherFrom, to, end - start);
+            if (this.otherMasked != null) {
+              System.arraycopy(this.otherMasked, from, this.otherMasked, to, end - start);
+            }
+          }
+          to += end - start;
+        }
+      }
+      this.width -= k;
+    }
+    this.version += 1;
+
+    // where each seam closed up, which is as many places before it as there
+    // are seams before it
+    Seam[] closed = new Seam[k];
+    // Loops through the seams from last to first, recording each for undo and
+    // recomputing the energy where it closed up
+    for (int j = k - 1; j >= 0; j -= 1) {
+      this.journal(ordered[j]);
+      removed.add(ordered[j]);
+      int[] path = new int[ordered[j].path.length];
+      for (int i = 0; i < path.length; i += 1) {
+        path[i] = ordered[j].path[i] - j;
+      }
+      closed[j] = new Seam(isHorizontal, path, ordered[j].totalWeight);
+      this.updateEnergyAround(closed[j]);
+    }
+    this.reaccumulateAll(closed);
+    this.reaccumulateOther(closed);
+    this.recordCheckpoint();
+    return removed;
+  }
+
+  // updates the seam table around each of the given seams, once every energy
+  // is up to date, giving up and leaving the table out of date once updating
+  // all of them looks dearer than a rebuild
+  void reaccumulateAll(Seam[] seams) {
+    long recomputed = 0;
+    // Loops through each seam while the table is still worth updating
+    for (int j = 0; j < seams.length && this.accumulated.length() > 0; j += 1) {
+      recomputed += this.reaccumulate(seams[j]);
+      if (recomputed * seams.length / (j + 1) > (long) this.width * this.height) {
+        this.accumulated = "";
+      }
+    }
+  }
+
+  // makes room in the arrays for a grid of the given size, moving the pixels
+  // into larger arrays with a wider stride if they do not fit
+  void ensureCapacity(int newWidth, int newHeight) {
+    int newStride = Math.max(this.stride, newWidth);
+    if (newStride == this.stride && (long) newStride * newHeight <= this.colors.length) {
+      return;
+    }
+    int size = newStride * Math.max(newHeight, this.height);
+    int[] newColors = new int[size];
+    float[] newBrightness = new float[size];
+    float[] newEnergy = new float[size];
+    float[] newTotalWeight = new float[size];
+    byte[] newCameFrom = new byte[size];
+    int[] newOrigin = new int[size];
+    byte[] newLuma = null;
+    if (this.luma != null) {
+      newLuma = new byte[size];
+    }
+    int[] newMasked = null;
+    if (this.masked != null) {
+      newMasked = new int[size];
+    }
+    // Loops through each row and copies it to where it goes with the new stride
+    for (int row = 0; row < this.height; row += 1) {
+      int from = this.index(row, 0);
+      int to = row * newStride;
+      System.arraycopy(this.colors, from, newColors, to, this.width);
+      System.arraycopy(this.brightness, from, newBrightness, to, this.width);
+      if (newLuma != null) {
+        System.arraycopy(this.luma, from, newLuma, to, this.width);
+      }
+      System.arraycopy(this.energy, from, newEnergy, to, this.width);
+      System.arraycopy(this.totalWeight, from, newTotalWeight, to, this.width);
+      System.arraycopy(this.cameFrom, from, newCameFrom, to, this.width);
+      System.arraycopy(this.origin, from, newOrigin, to, this.width);
+      if (newMasked != null) {
+        System.arraycopy(this.masked, from, newMasked, to, this.width);
+      }
+    }
+    this.stride = newStride;
+    this.masked = newMasked;
+    this.otherMasked = null;
+    this.colors = newColors;
+    this.brightness = newBrightness;
+    this.luma = newLuma;
+    this.energy = newEnergy;
+    this.totalWeight = newTotalWeight;
+    this.cameFrom = newCameFrom;
+    this.origin = newOrigin;
+  }
+
+  // returns the average of the two given packed colors, which is opaque
+  int averageColor(int first, int second) {
+    int red = (((first >> 16) & 0xFF) + ((second >> 16) & 0xFF)) / 2;
+    int green = (((first >> 8) & 0xFF) + ((second >> 8) & 0xFF)) / 2;
+    int blue = ((first & 0xFF) + (second & 0xFF)) / 2;
+    return 0xFF000000 | (red << 16) | (green << 8) | blue;
+  }
+
+  // puts the given color into the given index as a new pixel whose seam
+  // weight counts as changed
+  void putInserted(int idx, int color) {
+    this.colors[idx] = color;
+    this.brightness[idx] = new GridUtils().brightnessOf(color);
+    this.noteLuma(idx);
+    this.totalWeight[idx] = Float.NaN;
+    this.cameFrom[idx] = 0;
+    this.origin[idx] = -1;
+  }
+
+  // widens (or heightens) this grid by up to the given number of pixels,
+  // finding that many of the cheapest seams that share no pixel in one seam
+  // table and putting a new pixel after each of their pixels, colored halfway
+  // between it and the next one, all in one pass
+  // returns the new seams, with paths in the grown grid
+  // the seams removed so far are forgotten, since their paths no longer match
+  // the grid
+  ArrayList<Seam> insertSeams(boolean isHorizontal, int count) {
+    ArrayList<Seam> inserted = new ArrayList<Seam>();
+    if (count < 1) {
+      return inserted;
+    }
+    this.clearHighlight();
+    ArrayList<Seam> found = this.findDisjointSeams(isHorizontal, count);
+    // the seams from first to last along each line
+    Seam[] ordered = found.toArray(new Seam[found.size()]);
+    Arrays.sort(ordered, (a, b) -> Integer.compare(a.path[0], b.path[0]));
+    int k = ordered.length;
+    // the other direction's table is not moved to make room for the new pixels
+    this.otherAccumulated = "";
+
+    if (isHorizontal) {
+      this.ensureCapacity(this.width, this.height + k);
+      // how many seams at or above the row being filled are still to go in
+      // each column
+      int[] left = new int[this.width];
+      Arrays.fill(left, k);
+      // Loops upwards through each row of the grown grid, filling every column
+      // with its new pixel or with the pixel that moves down into it
+      for (int row = this.height + k - 1; row >= 0; row -= 1) {
+        for (int col = 0; col < this.width; col += 1) {
+          int n = left[col];
+          if (n == 0) {
+            continue;
+          }
+          int seamRow = ordered[n - 1].path[col];
+          if (row == seamRow + n) {
+            int below = this.colors[this.index(Math.min(seamRow + 1, this.height - 1), col)];
+            this.putInserted(this.index(row, col),
+                this.averageColor(this.colors[this.index(seamRow, col)], below));
+            left[col] -= 1;
+          }
+          else {
+            this.moveTo(this.index(row - n, col), this.index(row, col));
+          }
+        }
+      }
+      this.height += k;
+    }
+    else {
+      this.ensureCapacity(this.width + k, this.height);
+      // Loops through each row, from its end, opening a gap after each seam's
+      // pixel and filling it
+      for (int row = 0; row < this.height; row += 1) {
+        for (int j = k - 1; j >= 0; j -= 1) {
+          int seamCol = ordered[j].path[row];
+          int end = this.width;
+          if (j + 1 < k) {
+            end = ordered[j + 1].path[row] + 1;
+          }
+          int color = this.averageColor(this.colors[this.index(row, seamCol)],
+              this.colors[this.index(row, Math.min(seamCol + 1, this.width - 1))]);
+          int from = this.index(row, seamCol + 1);
+          int to = from + j + 1;
+          System.arraycopy(this.colors, from, this.colors, to, end - seamCol - 1);
+          System.arraycopy(this.brightness, from, this.brightness, to, end - seamCol - 1);
+          if (this.luma != null) {
+            System.arraycopy(this.luma, from, this.luma, to, end - seamCol - 1);
+          }
+          System.arraycopy(this.energy, from, this.energy, to, end - seamCol - 1);
+          System.arraycopy(this.totalWeight, from, this.totalWeight, to, end - seamCol - 1);
+          System.arraycopy(this.cameFrom, from, this.cameFrom, to, end - seamCol - 1);
+          System.arraycopy(this.origin, from, this.origin, to, end - seamCol - 1);
+          if (this.masked != null) {
+            System.arraycopy(this.masked, from, this.masked, to, end - seamCol - 1);
+          }
+          this.putInserted(this.index(row, seamCol + j + 1), color);
+        }
+      }
+      this.width += k;
+    }
+    this.version += 1;
+    this.touchAll();
+    this.maxEnergyStale = true;
+    this.maxWeightStale = true;
+    this.rebase();
+
+    Seam[] grown = new Seam[k];
+    // Loops through each seam, finding where its new pixels went, and
+    // recomputes the energy around them
+    for (int j = 0; j < k; j += 1) {
+      int[] path = new int[ordered[j].path.length];
+      for (int i = 0; i < path.length; i += 1) {
+        path[i] = ordered[j].path[i] + j + 1;
+      }
+      grown[j] = new Seam(isHorizontal, path, ordered[j].totalWeight);
+      grown[j].colors = new int[path.length];
+      for (int i = 0; i < path.length; i += 1) {
+        grown[j].colors[i] = this.colors[this.indexOn(grown[j], i)];
+      }
+      this.updateEnergyAround(grown[j]);
+      inserted.add(grown[j]);
+    }
+    this.reaccumulateAll(grown);
+    return inserted;
+  }
+
+  // inserts seams until this grid is at least the given size, widening first,
+  // and never growing by more than half at a time so that the same seams are
+  // not stretched over and over
+  ArrayList<Seam> enlargeTo(int targetWidth, int targetHeight) {
+    ArrayList<Seam> trace = new ArrayList<Seam>();
+    // Loops until the grid is wide enough
+    while (this.width < targetWidth) {
+      trace.addAll(this.insertSeams(false,
+          Math.min(targetWidth - this.width, Math.max(1, this.width / 2))));
+    }
+    // Loops until the grid is tall enough
+    while (this.height < targetHeight) {
+      trace.addAll(this.insertSeams(true,
+          Math.min(targetHeight - this.height, Math.max(1, this.height / 2))));
+    }
+    return trace;
+  }
+
+  // records the given seam, just removed, in the journal, forgetting the
+  // checkpoints past it unless it was the seam to redo next
+  void journal(Seam seam) {
+    if (this.removedSeams != null && !this.removedSeams.add(seam) && this.history != null) {
+      this.history.forgetAfter(this.removedSeams.size() - 1);
+    }
+  }
+
+  // adds a checkpoint of this grid if checkpoints are kept and the last one
+  // is far enough back
+  void recordCheckpoint() {
+    if (this.history != null) {
+      this.history.record(this);
+    }
+  }
+
+  // keeps the seams removed from now on so that they can be undone, or stops
+  // keeping them, closing the journal and dropping the checkpoints, for a
+  // grid that is only ever carved down, which then skips encoding every seam
+  void useJournal(boolean keep) {
+    if (keep && this.removedSeams == null) {
+      this.removedSeams = new SeamJournal(1 << 24);
+    }
+    else if (!keep && this.removedSeams != null) {
+      this.removedSeams.close();
+      this.removedSeams = null;
+      this.history = null;
+    }
+  }
+
+  // returns the journal of the seams removed so far, if they are kept
+  SeamJournal requireJournal() {
+    if (this.removedSeams == null) {
+      throw new IllegalArgumentException("removed seams are not kept");
+    }
+    return this.removedSeams;
+  }
+
+  // starts keeping a checkpoint at least every given number of steps, so that
+  // jumpTo never has to undo or redo many more seams than that
+  void enableHistory(int every) {
+    this.requireJournal();
+    this.clearHighlight();
+    this.history = new GridHistory(this.baselineSize, every);
+    this.history.record(this);
+  }
+
+  // makes this grid as it is now the baseline, forgetting the seams removed
+  // so far and every checkpoint, since they no longer match it
+  // the mask is carried over to the new baseline as each pixel is numbered
+  // in it, in the same pass
+  void rebase() {
+    if (this.removedSeams != null) {
+      this.removedSeams.clear();
+    }
+    SeamMask carried = null;
+    if (this.mask != null) {
+      carried = new SeamMask(this.width * this.height, this.mask.weight);
+    }
+    // Loops through each pixel and numbers it in the new baseline
+    for (int row = 0; row < this.height; row += 1) {
+      for (int col = 0; col < this.width; col += 1) {
+        int idx = this.index(row, col);
+        if (carried != null) {
+          carried.carry(this.mask, this.origin[idx], row * this.width + col);
+        }
+        this.origin[idx] = row * this.width + col;
+      }
+    }
+    if (carried != null) {
+      this.mask = carried;
+    }
+    this.baselineSize = this.width * this.height;
+    if (this.history != null) {
+      this.enableHistory(this.history.every);
+    }
+  }
+
+  // marks every pixel of the given mask, over a baseline of this grid as it
+  // is now row by row, as this grid's mask marks the pixel there, where a
+  // pixel made since the baseline is marked like the one before it
+  void carryMask(SeamMask into) {
+    // Loops through each pixel and carries over the mark of its baseline pixel
+    for (int row = 0; row < this.height; row += 1) {
+      for (int col = 0; col < this.width; col += 1) {
+        into.carry(this.mask, this.origin[this.index(row, col)], row * this.width + col);
+      }
+    }
+  }
+
+  // masks the pixel at the given row and column: "protect" keeps seams away
+  // from it, "remove" draws seams to it, and "none" clears it
+  // the first pixel masked makes a mask whose weight is more than the energy
+  // of any seam through the grid as it is then
+  // the seam table has to be rebuilt afterwards
+  void mask(int row, int col, String kind) {
+    this.mask(row, col, 1, 1, kind);
+  }
+
+  // masks every pixel of the given rectangle, as mask does for one, checking
+  // the rectangle and forgetting the seam tables once for all of them
+  // a pixel made since the baseline cannot be masked, but those before it in
+  // the rectangle stay masked
+  void mask(int row, int col, int width, int height, String kind) {
+    if (row < 0 || col < 0 || width < 1 || height < 1 || row + height > this.height
+        || col + width > this.width) {
+      throw new IllegalArgumentException("pixel is outside the grid");
+    }
+    if (!kind.equals("protect") && !kind.equals("remove") && !kind.equals("none")) {
+      throw new IllegalArgumentException("mask must be protect, remove or none");
+    }
+    if (this.mask == null) {
+      this.mask = new SeamMask(this.baselineSize,
+          (float) (Math.max(1, this.getMaxEnergy()) * (this.width + this.height)));
+      this.fitMasked();
+    }
+    this.forgetSeamTables();
+    this.version += 1;
+    // Loops through each pixel of the rectangle and marks its baseline pixel
+    for (int i = row; i < row + height; i += 1) {
+      for (int j = col; j < col + width; j += 1) {
+        int at = this.origin[this.index(i, j)];
+        if (at < 0) {
+          throw new IllegalArgumentException("pixel was made since the baseline");
+        }
+        this.mask.mark(at, kind);
+      }
+    }
+  }
+
+  // returns how many of the pixels left are marked to be removed
+  int countMarked() {
+    int count = 0;
+    if (this.mask == null) {
+      return 0;
+    }
+    // Loops through each pixel and counts the ones marked to be removed
+    for (int row = 0; row < this.height; row += 1) {
+      for (int col = 0; col < this.width; col += 1) {
+        int at = this.origin[this.index(row, col)];
+        if (at >= 0 && this.mask.isRemoved(at)) {
+          count += 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  // removes seams in the given direction until no pixel marked to be removed
+  // is left, or a seam removes none of them, and returns how many it removed
+  int removeMarked(boolean isHorizontal) {
+    int left = this.countMarked();
+    int removed = 0;
+    // Loops until every marked pixel is gone, counting off the ones each seam
+    // takes with it
+    while (left > 0 && (isHorizontal && this.height > 1 || !isHorizontal && this.width > 1)) {
+      Seam seam = this.removeSeam(isHorizontal);
+      removed += 1;
+      int taken = 0;
+      // Loops through the pixels the seam removed
+      for (int i = 0; i < seam.origins.length; i += 1) {
+        if (seam.origins[i] >= 0 && this.mask.isRemoved(seam.origins[i])) {
+          taken += 1;
+        }
+      }
+      if (taken == 0) {
+        break;
+      }
+      left -= taken;
+    }
+    return removed;
+  }
+
+  // puts back the newest removed seam and returns it, keeping it in the
+  // journal to redo
+  Seam undo() {
+    Seam seam = this.requireJournal().last();
+    if (seam.isHorizontal) {
+      this.reinsert("h");
+    }
+    else {
+      this.reinsert("v");
+    }
+    return this.removedSeams.removeLast();
+  }
+
+  // removes again the seam undone last and returns it
+  Seam redo() {
+    Seam seam = this.requireJournal().next();
+    this.clearHighlight();
+    this.plan = new SeamPlan(new Seam(seam.isHorizontal, seam.path, seam.totalWeight),
+        this.version);
+    return this.removeSeam(seam.isHorizontal);
+  }
+
+  // moves this grid to the given step of its journal, the number of seams
+  // removed, by undoing or redoing seams from the current step or from the
+  // nearest checkpoint if that is closer, and returns how many seams that took
+  int jumpTo(int step) {
+    if (step < 0 || step > this.requireJournal().total()) {
+      throw new IllegalArgumentException("no such step");
+    }
+    this.clearHighlight();
+    if (this.history != null) {
+      Checkpoint nearest = this.history.nearest(step);
+      if (nearest != null
+          && Math.abs(nearest.step - step) < Math.abs(this.removedSeams.size() - step)) {
+        this.history.restore(this, nearest);
+      }
+    }
+    int moves = Math.abs(this.removedSeams.size() - step);
+    if (moves > 1) {
+      // the seam table would be updated after every seam, so rebuild it once
+      // when it is next needed instead
+      this.forgetSeamTables();
+    }
+    // Loops until enough seams are put back
+    while (this.removedSeams.size() > step) {
+      this.undo();
+    }
+    // Loops until enough seams are removed again
+    while (this.removedSeams.size() < step) {
+      this.redo();
+    }
+    return moves;
+  }
+
+  // removes the minimum seam in the given direction and returns it, or null
+  // if there is no room for one
+  Seam removeSeam(boolean isHorizontal) {
+    if (isHorizontal) {
+      return this.removeSeamHorizontal();
+    }
+    return this.removeSeamVertical();
+  }
+
+  // moves the pixel at the given index into the other index, with its seam
+  // weights in both tables if the other one is kept
+  void moveTo(int from, int to) {
+    this.colors[to] = this.colors[from];
+    this.brightness[to] = this.brightness[from];
+    if (this.luma != null) {
+      this.luma[to] = this.luma[from];
+    }
+    this.energy[to] = this.energy[from];
+    this.totalWeight[to] = this.totalWeight[from];
+    this.cameFrom[to] = this.cameFrom[from];
+    this.origin[to] = this.origin[from];
+    if (this.masked != null) {
+      this.masked[to] = this.masked[from];
+    }
+    if (this.otherAccumulated.length() > 0) {
+      this.otherWeight[to] = this.otherWeight[from];
+      this.otherFrom[to] = this.otherFrom[from];
+      if (this.otherMasked != null) {
+        this.otherMasked[to] = this.otherMasked[from];
+      }
+    }
+  }
+
+  // reinserts the last seam removed
+  void reinsert(String dir) {
+    if (!dir.equals("h") && !dir.equals("v")) {
+      throw new IllegalArgumentException("not real direction");
+    }
+    this.clearHighlight();
+    Seam toReinsert = this.requireJournal().last();
+    // the other direction's table is not moved to make room for the seam
+    this.otherAccumulated = "";
+
+    if (toReinsert.isHorizontal) {
+      int top = this.height;
+      // Loops through each column and finds the top of the seam
+      for (int col = 0; col < this.width; col += 1) {
+        top = Math.min(top, toReinsert.path[col]);
+      }
+      // Loops upwards through each row below the top of the seam, pushing down the
+      // pixels of the columns whose seam pixel is above it
+      for (int row = this.height; row > top; row -= 1) {
+        for (int col = 0; col < this.width; col += 1) {
+          if (toReinsert.path[col] < row) {
+            this.moveTo(this.index(row - 1, col), this.index(row, col));
+          }
+        }
+      }
+      this.height += 1;
+    }
+    else {
+      // Loops through each row and opens a gap for the seam's pixel
+      for (int row = 0; row < this.height; row += 1) {
+        int idx = this.index(row, toReinsert.path[row]);
+        int after = this.width - toReinsert.path[row];
+        System.arraycopy(this.colors, idx, this.colors, idx + 1, after);
+        System.arraycopy(this.brightness, idx, this.brightness, idx + 1, after);
+        if (this.luma != null) {
+          System.arraycopy(this.luma, idx, this.luma, idx + 1, after);
+        }
+        System.arraycopy(this.energy, idx, this.energy, idx + 1, after);
+        System.arraycopy(this.totalWeight, idx, this.totalWeight, idx + 1, after);
+        System.arraycopy(this.cameFrom, idx, this.cameFrom, idx + 1, after);
+        System.arraycopy(this.origin, idx, this.origin, idx + 1, after);
+        if (this.masked != null) {
+          System.arraycopy(this.masked, idx, this.masked, idx + 1, after);
+        }
+      }
+      this.width += 1;
+    }
+    this.version += 1;
+
+    this.touchFrom(toReinsert, this.width, this.height);
+
+    // Loops through the seam and puts back its pixels
+    for (int i = 0; i < toReinsert.path.length; i += 1) {
+      int idx = this.indexOn(toReinsert, i);
+      this.colors[idx] = toReinsert.colors[i];
+      this.origin[idx] = toReinsert.origins[i];
+      this.brightness[idx] = new GridUtils().brightnessOf(toReinsert.colors[i]);
+      this.noteLuma(idx);
+      this.totalWeight[idx] = Float.NaN;
+    }
+
+    this.updateEnergyAround(toReinsert);
+    this.reaccumulate(toReinsert);
+
+  }
+
+  // highlights the last reinserted seam in red
+  void highlightReinserted() {
+    this.clearHighlight();
+    Seam reinserted = this.requireJournal().last();
+    // Loops through the seam and paints it red
+    for (int i = 0; i < reinserted.path.length; i += 1) {
+      this.colors[this.indexOn(reinserted, i)] = Color.RED.getRGB();
+    }
+    this.highlighted = reinserted;
+    this.touchSeam(reinserted);
+  }
+
+  // sets the pixels of the last reinserted seam to their default colors
+  // the energy is left alone, since brightness always comes from the original
+  // colors
+  void fixColors() {
+    this.clearHighlight();
+    Seam toFix = this.requireJournal().removeLast();
+    // Loops through as long as there still is a pixel to fix
+    for (int i = 0; i < toFix.path.length; i += 1) {
+      this.colors[this.indexOn(toFix, i)] = toFix.colors[i];
+    }
+    this.touchSeam(toFix);
+
+  }
+
+}
+
+// accumulates the seam weights of a chunk of one row (or column) of a Grid,
+// splitting it in half until it is small enough to do directly
+class AccumulateChunk extends RecursiveAction {
+  // never serialized, but a RecursiveAction is Serializable
+  static final long serialVersionUID = 1L;
+
+  Grid grid;
+  boolean isHorizontal;
+  int line;
+  int from;
+  int to;
+
+  // constructor for AccumulateChunk, covering positions from (inclusive) to
+  // (exclusive) of the given line
+  AccumulateChunk(Grid grid, boolean isHorizontal, int line, int from, int to) {
+    this.grid = grid;
+    this.isHorizontal = isHorizontal;
+    this.line = line;
+    this.from = from;
+    this.to = to;
+  }
+
+  // accumulates this chunk, forking halves if it is at least the grid's
+  // threshold long
+  protected void compute() {
+    if (this.to - this.from < this.grid.parallelThreshold) {
+      // Loops through each pixel of the chunk
+      for (int i = this.from; i < this.to; i += 1) {
+        if (this.isHorizontal) {
+          this.grid.accumulateHorizontal(i, this.line);
+        }
+        else {
+          this.grid.accumulateVertical(this.line, i);
+        }
+      }
+    }
+    else {
+      int middle = (this.from + this.to) / 2;
+      invokeAll(new AccumulateChunk(this.grid, this.isHorizontal, this.line, this.from, middle),
+          new AccumulateChunk(this.grid, this.isHorizontal, this.line, middle, this.to));
+    }
+  }
+
+}
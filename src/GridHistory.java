@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// periodic checkpoints of a Grid, so that it can jump to any step of its seam
+// journal by restoring the nearest checkpoint and then undoing or redoing only
+// the seams between it and that step
+// a checkpoint is where each pixel was in the baseline grid, written as the
+// change from the pixel before and deflated, which is small since most pixels
+// were next to each other in the baseline too, and the colors come back from
+// one copy of the baseline colors
+class GridHistory {
+  // a checkpoint is kept at least this many steps after the one before it
+  int every;
+  // the color of each pixel of the baseline grid that has been seen in a
+  // checkpoint
+  int[] baseline;
+  // the checkpoints, by step
+  ArrayList<Checkpoint> checkpoints;
+  // room to write a map before it is deflated, kept between checkpoints
+  byte[] scratch;
+
+  Deflater deflater;
+  Inflater inflater;
+
+  // constructor for GridHistory, for a baseline grid with the given number of
+  // pixels and keeping a checkpoint every given number of steps
+  GridHistory(int baselineSize, int every) {
+    if (every < 1) {
+      throw new IllegalArgumentException("need at least one step between checkpoints");
+    }
+    this.every = every;
+    this.baseline = new int[baselineSize];
+    this.checkpoints = new ArrayList<Checkpoint>();
+    this.deflater = new Deflater(Deflater.BEST_SPEED);
+    this.inflater = new Inflater();
+  }
+
+  // returns the checkpoint closest to the given step, or null if there is none
+  Checkpoint nearest(int step) {
+    Checkpoint best = null;
+    // Loops through each checkpoint, keeping the closest
+    for (Checkpoint checkpoint : this.checkpoints) {
+      if (best == null || Math.abs(checkpoint.step - step) < Math.abs(best.step - step)) {
+        best = checkpoint;
+      }
+    }
+    return best;
+  }
+
+  // forgets the checkpoints after the given step, which no longer match the
+  // journal
+  void forgetAfter(int step) {
+    // Loops backwards through the checkpoints, dropping the ones after the step
+    for (int i = this.checkpoints.size() - 1; i >= 0; i -= 1) {
+      if (this.checkpoints.get(i).step > step) {
+        this.checkpoints.remove(i);
+      }
+    }
+  }
+
+  // adds a checkpoint of the given grid, which must not be highlighted, if the
+  // closest checkpoint before its step is at least the spacing away
+  void record(Grid grid) {
+    int step = grid.removedSeams.size();
+    int position = 0;
+    // Loops through the checkpoints to find where this step goes
+    while (position < this.checkpoints.size() && this.checkpoints.get(position).step <= step) {
+      position += 1;
+    }
+    if (position > 0 && step - this.checkpoints.get(position - 1).step < this.every) {
+      return;
+    }
+
+    // each baseline index as zigzag variable-length bytes of its change from
+    // the one before, less one, which is one byte where pixels are adjacent
+    if (this.scratch == null || this.scratch.length < 5 * grid.width * grid.height) {
+      this.scratch = new byte[5 * grid.width * grid.height];
+    }
+    byte[] raw = this.scratch;
+    int size = 0;
+    int previous = -1;
+    // Loops through each pixel, writing its baseline index and remembering its
+    // color
+    for (int row = 0; row < grid.height; row += 1) {
+      for (int col = 0; col < grid.width; col += 1) {
+        int idx = grid.index(row, col);
+        int delta = grid.origin[idx] - previous - 1;
+        int zigzag = (delta << 1) ^ (delta >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+          raw[size] = (byte) ((zigzag & 0x7F) | 0x80);
+          size += 1;
+          zigzag >>>= 7;
+        }
+        raw[size] = (byte) zigzag;
+        size += 1;
+        previous = grid.origin[idx];
+        this.baseline[grid.origin[idx]] = grid.colors[idx];
+      }
+    }
+
+    this.deflater.reset();
+    this.deflater.setInput(raw, 0, size);
+    this.deflater.finish();
+    ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+    int total = 0;
+    // Loops until the deflater has written everything, a chunk at a time
+    while (!this.deflater.finished()) {
+      byte[] chunk = new byte[1 << 16];
+      int written = this.deflater.deflate(chunk);
+      chunks.add(Arrays.copyOf(chunk, written));
+      total += written;
+    }
+    byte[] map = new byte[total];
+    int at = 0;
+    // Loops through each chunk and joins them up
+    for (byte[] chunk : chunks) {
+      System.arraycopy(chunk, 0, map, at, chunk.length);
+      at += chunk.length;
+    }
+    this.checkpoints.add(position, new Checkpoint(step, grid.width, grid.height, size, map));
+  }
+
+  // puts the given grid back into the shape it had at the given checkpoint,
+  // with its energy recomputed and its seam table out of date
+  void restore(Grid grid, Checkpoint checkpoint) {
+    byte[] raw = new byte[checkpoint.rawSize];
+    this.inflater.reset();
+    this.inflater.setInput(checkpoint.map);
+    try {
+      int size = 0;
+      // Loops until the whole map is inflated
+      while (size < raw.length) {
+        int read = this.inflater.inflate(raw, size, raw.length - size);
+        if (read == 0 && (this.inflater.finished() || this.inflater.needsInput())) {
+          throw new IllegalStateException("checkpoint is cut short");
+        }
+        size += read;
+      }
+    }
+    catch (DataFormatException e) {
+      throw new IllegalStateException("checkpoint is corrupt", e);
+    }
+
+    grid.clearHighlight();
+    grid.width = checkpoint.width;
+    grid.height = checkpoint.height;
+    int at = 0;
+    int previous = -1;
+    // Loops through each pixel, reading its baseline index and taking its color
+    for (int row = 0; row < grid.height; row += 1) {
+      for (int col = 0; col < grid.width; col += 1) {
+        int zigzag = 0;
+        int shift = 0;
+        while ((raw[at] & 0x80) != 0) {
+          zigzag |= (raw[at] & 0x7F) << shift;
+          shift += 7;
+          at += 1;
+        }
+        zigzag |= raw[at] << shift;
+        at += 1;
+        int idx = grid.index(row, col);
+        grid.origin[idx] = previous + 1 + ((zigzag >>> 1) ^ -(zigzag & 1));
+        previous = grid.origin[idx];
+        grid.colors[idx] = this.baseline[previous];
+        grid.brightness[idx] = new GridUtils().brightnessOf(grid.colors[idx]);
+        grid.noteLuma(idx);
+      }
+    }
+    grid.touchAll();
+    grid.initializeEnergy();
+    grid.forgetSeamTables();
+    grid.version += 1;
+    grid.removedSeams.seek(checkpoint.step);
+  }
+
+}
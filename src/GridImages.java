@@ -0,0 +1,107 @@
+import java.awt.Color;
+import javalib.worldimages.ComputedPixelImage;
+import javalib.worldimages.WorldImage;
+
+// draws Grids and seam indexes as javalib images for the editor
+// kept apart from Grid and SeamIndex so that the headless tools, Retarget
+// and BatchRetarget, run without javalib on the classpath
+class GridImages {
+
+  // renders the given grid
+  WorldImage render(Grid grid) {
+    ComputedPixelImage pic = new ComputedPixelImage(grid.width, grid.height);
+    // Loops through each pixel and adds its attributes to the image
+    for (int i = 0; i < grid.height; i += 1) {
+      for (int j = 0; j < grid.width; j += 1) {
+        pic.setPixel(j, i, new Color(grid.colors[grid.index(i, j)]));
+      }
+    }
+    return pic;
+  }
+
+  // renders a greyscale image of the energy of the given grid from 0-1
+  WorldImage renderGreyScale(Grid grid) {
+    ComputedPixelImage pic = new ComputedPixelImage(grid.width, grid.height);
+
+    double max = grid.getMaxEnergy();
+    // Loops through each pixel and adds its attributes to the image
+    for (int i = 0; i < grid.height; i += 1) {
+      for (int j = 0; j < grid.width; j += 1) {
+        float shade = 0;
+        if (max > 0) {
+          shade = (float) (grid.energy[grid.index(i, j)] / max);
+        }
+        pic.setPixel(j, i, new Color(shade, shade, shade));
+      }
+    }
+
+    return pic;
+  }
+
+  // renders the seam energies of the given grid
+  WorldImage renderSeams(Grid grid) {
+    ComputedPixelImage pic = new ComputedPixelImage(grid.width, grid.height);
+
+    double max = grid.getMaxTotalWeight();
+    // Loops through each pixel and adds its attributes to the image
+    for (int i = 0; i < grid.height; i += 1) {
+      for (int j = 0; j < grid.width; j += 1) {
+        int shade = 0;
+        if (max > 0) {
+          shade = (int) (255.0 * grid.totalWeight[grid.index(i, j)] / max);
+        }
+        pic.setPixel(j, i, new Color(shade, shade, shade));
+      }
+    }
+
+    return pic;
+  }
+
+  // returns the image the editor shows of the given grid, kept from the last
+  // time and repainted only where the grid changed since, as large as the
+  // grid has been with the part it no longer covers left clear
+  ComputedPixelImage renderFrame(Grid grid) {
+    return this.renderFrame(grid, "colors");
+  }
+
+  // returns the image the editor shows of the given layer of the given grid,
+  // "colors", "energy", or "seams" for the seam weights last accumulated
+  ComputedPixelImage renderFrame(Grid grid, String layer) {
+    GridView shown = null;
+    // Loops through each view drawn so far, looking for the layer's
+    for (GridView view : grid.views) {
+      if (view.layer.equals(layer)) {
+        shown = view;
+      }
+    }
+    if (shown == null) {
+      shown = new GridView(layer);
+      grid.views.add(shown);
+    }
+    if (layer.equals("seams") && grid.accumulated.length() == 0) {
+      grid.findVerticalSeams();
+    }
+    return shown.refresh(grid);
+  }
+
+  // renders the given seam index at the given width, or height for
+  // horizontal seams
+  WorldImage render(SeamIndex index, int size) {
+    int[] shown = index.colorsAt(size);
+    int shownWidth = size;
+    int shownHeight = index.height;
+    if (index.isHorizontal) {
+      shownWidth = index.width;
+      shownHeight = size;
+    }
+    ComputedPixelImage pic = new ComputedPixelImage(shownWidth, shownHeight);
+    // Loops through each pixel and adds its attributes to the image
+    for (int i = 0; i < shownHeight; i += 1) {
+      for (int j = 0; j < shownWidth; j += 1) {
+        pic.setPixel(j, i, new Color(shown[i * shownWidth + j]));
+      }
+    }
+    return pic;
+  }
+
+}
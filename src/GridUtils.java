@@ -0,0 +1,171 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import javalib.worldimages.FromFileImage;
+
+// utils class 
+class GridUtils {
+  // initializes the relationships of the given arraylist of pixels
+  // sets the pixels to refer to each other based on their position in the
+  // arraylist
+  void initRelation(ArrayList<ArrayList<Pixel>> arr) {
+    for (int row = 0; row < arr.size(); row += 1) {
+      for (int col = 0; col < arr.get(0).size(); col += 1) {
+        Pixel curr = arr.get(row).get(col);
+
+        if (col > 0) {
+          curr.left = arr.get(row).get(col - 1);
+        }
+        if (col < arr.get(0).size() - 1) {
+          curr.right = arr.get(row).get(col + 1);
+        }
+        if (row > 0) {
+          curr.top = arr.get(row - 1).get(col);
+        }
+        if (row < arr.size() - 1) {
+          curr.bottom = arr.get(row + 1).get(col);
+        }
+      }
+    }
+    arr.get(0).get(0).top.left = arr.get(0).get(0).left;
+    arr.get(0).get(0).left.top = arr.get(0).get(0).left;
+    arr.get(0).get(arr.get(0).size() - 1).top.right = arr.get(0).get(0).left;
+    arr.get(0).get(arr.get(0).size() - 1).right.top = arr.get(0).get(0).left;
+    arr.get(arr.size() - 1).get(0).bottom.left = arr.get(0).get(0).left;
+    arr.get(arr.size() - 1).get(0).left.bottom = arr.get(0).get(0).left;
+    arr.get(arr.size() - 1).get(arr.get(0).size() - 1).bottom.right = arr.get(0).get(0).left;
+    arr.get(arr.size() - 1).get(arr.get(0).size() - 1).right.bottom = arr.get(0).get(0).left;
+  }
+
+  // updates the given list of pixels to the graph of the given pixel
+  void updateListVertical(ArrayList<ArrayList<Pixel>> pixels, Pixel firstPixel) {
+    pixels.clear();
+    pixels = firstPixel.accumulateBottom(pixels);
+  }
+
+  // initializes the energy levels of a list of pixels
+  void initializeEnergy(ArrayList<ArrayList<Pixel>> pixels) {
+    for (ArrayList<Pixel> l : pixels) {
+      for (Pixel p : l) {
+        double hEnergy = (p.left.top.brightness + 2 * p.left.brightness + p.left.bottom.brightness)
+            - (p.top.right.brightness + 2 * p.right.brightness + p.right.bottom.brightness);
+        double vEnergy = (p.left.top.brightness + 2 * p.top.brightness + p.top.right.brightness)
+            - (p.bottom.left.brightness + 2 * p.bottom.brightness + p.bottom.right.brightness);
+        p.energy = Math.sqrt(Math.pow(hEnergy, 2) + Math.pow(vEnergy, 2));
+      }
+    }
+  }
+
+  // puts all pixels of an image into array list
+  void retrievePixels(ArrayList<ArrayList<Pixel>> pixels, FromFileImage image) {
+    APixel border = new BorderPixel();
+    for (int i = 0; i < (int) image.getHeight(); i += 1) {
+      ArrayList<Pixel> row = new ArrayList<Pixel>();
+      for (int j = 0; j < (int) image.getWidth(); j += 1) {
+        APixel left = border;
+        APixel top = border;
+        APixel bottom = border;
+        APixel right = border;
+        row.add(new Pixel(image.getColorAt(j, i), left, right, top, bottom));
+      }
+      pixels.add(row);
+    }
+  }
+
+  // returns the brightness of the given packed ARGB color, from 0-1
+  float brightnessOf(int argb) {
+    int red = (argb >> 16) & 0xFF;
+    int green = (argb >> 8) & 0xFF;
+    int blue = argb & 0xFF;
+    return (float) (((red + blue + green) / 3.0) / 255.0);
+  }
+
+  // returns the 8-bit luma of the given packed ARGB color, the mean of its
+  // channels rounded down, dividing by 3 as multiplying by 65536 / 3 and
+  // shifting, which is exact for every sum of three channels
+  int lumaOf(int argb) {
+    int sum = ((argb >> 16) & 0xFF) + ((argb >> 8) & 0xFF) + (argb & 0xFF);
+    return (sum * 21846) >>> 16;
+  }
+
+  // returns the width of the given rows of pixels, or 0 if there are none
+  int widthOf(ArrayList<ArrayList<Pixel>> pixels) {
+    if (pixels.size() < 1) {
+      return 0;
+    }
+    return pixels.get(0).size();
+  }
+
+  // puts the colors of the given rows of pixels into a row-major array
+  int[] retrieveColors(ArrayList<ArrayList<Pixel>> pixels) {
+    int width = this.widthOf(pixels);
+    int[] colors = new int[width * pixels.size()];
+    // Loops through each pixel and packs its color
+    for (int row = 0; row < pixels.size(); row += 1) {
+      if (pixels.get(row).size() != width) {
+        throw new IllegalArgumentException("not well formed");
+      }
+      for (int col = 0; col < width; col += 1) {
+        colors[row * width + col] = pixels.get(row).get(col).color.getRGB();
+      }
+    }
+    return colors;
+  }
+
+  // puts the colors of every pixel of an image into a row-major array
+  int[] retrieveColors(FromFileImage image) {
+    int width = (int) image.getWidth();
+    int[] colors = new int[width * (int) image.getHeight()];
+    // Loops through each pixel and packs its color
+    for (int i = 0; i < (int) image.getHeight(); i += 1) {
+      for (int j = 0; j < width; j += 1) {
+        colors[i * width + j] = image.getColorAt(j, i).getRGB();
+      }
+    }
+    return colors;
+  }
+
+  // puts the colors of every pixel of a decoded image into a row-major array
+  int[] retrieveColors(BufferedImage image) {
+    return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+  }
+
+  // sets the seaminfo to default values for each pixel
+  void resetSeamInfo(ArrayList<ArrayList<Pixel>> pixels) {
+    // Loops through each pixel and sets seaminfo to default
+    for (ArrayList<Pixel> l : pixels) {
+      for (Pixel p : l) {
+        p.seam.totalWeight = p.energy;
+        p.seam.cameFrom = null;
+      }
+    }
+  }
+
+  // returns the maximum energy pixel value of the given grid of pixels
+  double getMaxEnergy(ArrayList<ArrayList<Pixel>> pixels) {
+    double max = 0.0;
+    // Loops through each pixel and updates max energy
+    for (ArrayList<Pixel> l : pixels) {
+      for (Pixel p : l) {
+        if (p.energy > max) {
+          max = p.energy;
+        }
+      }
+    }
+    return max;
+  }
+
+  // returns the maximum totalweight of the given grid of pixels
+  double getMaxTotalWeight(ArrayList<ArrayList<Pixel>> pixels) {
+    double max = 0.0;
+    // Loops through each pixel and updates max total weight
+    for (ArrayList<Pixel> l : pixels) {
+      for (Pixel p : l) {
+        if (p.computeTotalWeight() > max) {
+          max = p.computeTotalWeight();
+        }
+      }
+    }
+    return max;
+  }
+
+}
@@ -0,0 +1,184 @@
+import java.awt.Color;
+import java.util.Arrays;
+import javalib.worldimages.ComputedPixelImage;
+
+// a javalib image of a Grid kept from one frame to the next, so that drawing
+// the grid again only repaints the pixels that changed since it was last drawn
+// javalib's images are final and keep their pixels to themselves, so the
+// grid's colors cannot be drawn from directly; instead the grid marks the
+// pixels it changes, and only those are copied over
+// the image is as large as the grid has been, with the part the grid no
+// longer covers left clear, so that it is not made again as the grid shrinks
+// it shows one layer of the grid: its colors, its energy, or its seam
+// weights, the last two shaded against the largest value shown, so the whole
+// layer is repainted when that changes
+class GridView {
+  ComputedPixelImage frame;
+  // the layer shown, "colors", "energy" or "seams", and the largest value
+  // its shades were drawn against
+  String layer;
+  double shownMax;
+  // the 256 shades of grey, kept so that shading a pixel makes no new color
+  Color[] greys;
+  // the color of the part of the frame past the grid's edge, kept so that
+  // clearing it makes no new color
+  Color clear;
+  // for each row of the frame, the columns from dirtyFrom up to dirtyTo have
+  // changed since it was last repainted
+  int[] dirtyFrom;
+  int[] dirtyTo;
+  // the width of the largest grid whose changes were kept
+  int trackedWidth;
+  // whether every pixel has changed
+  boolean allDirty;
+
+  // constructor for GridView, showing the given layer with nothing drawn yet
+  GridView(String layer) {
+    if (!layer.equals("colors") && !layer.equals("energy") && !layer.equals("seams")) {
+      throw new IllegalArgumentException("no such layer");
+    }
+    this.layer = layer;
+    this.allDirty = true;
+    this.clear = new Color(0, 0, 0, 0);
+    this.greys = new Color[256];
+    // Loops through each shade of grey
+    for (int i = 0; i < 256; i += 1) {
+      this.greys[i] = new Color(i, i, i);
+    }
+  }
+
+  // marks the given columns of the given row as changed
+  void touch(int row, int from, int to) {
+    if (this.dirtyFrom == null || row >= this.dirtyFrom.length) {
+      this.allDirty = true;
+      return;
+    }
+    this.dirtyFrom[row] = Math.min(this.dirtyFrom[row], from);
+    this.dirtyTo[row] = Math.max(this.dirtyTo[row], to);
+  }
+
+  // returns the image of the layer of the given grid, repainting the pixels
+  // that changed
+  ComputedPixelImage refresh(Grid grid) {
+    this.fit(grid.width, grid.height);
+    double max = 0;
+    if (this.layer.equals("energy")) {
+      max = grid.getMaxEnergy();
+    }
+    else if (this.layer.equals("seams")) {
+      max = grid.getMaxTotalWeight();
+    }
+    if (max != this.shownMax) {
+      this.shownMax = max;
+      this.allDirty = true;
+    }
+    // Loops through each row of the frame and repaints what changed in it
+    for (int row = 0; row < this.frame.height; row += 1) {
+      int from = this.dirtyFrom[row];
+      int to = Math.min(this.dirtyTo[row], this.frame.width);
+      if (this.allDirty) {
+        from = 0;
+        to = this.frame.width;
+      }
+      if (from < to) {
+        this.paint(grid, row, from, to);
+      }
+      this.dirtyFrom[row] = Integer.MAX_VALUE;
+      this.dirtyTo[row] = 0;
+    }
+    this.allDirty = false;
+    return this.frame;
+  }
+
+  // makes a larger frame if the current one cannot hold an image of the given
+  // size, to be painted in full
+  void fit(int width, int height) {
+    if (this.frame != null && width <= this.frame.width && height <= this.frame.height) {
+      return;
+    }
+    int frameWidth = width;
+    int frameHeight = height;
+    if (this.frame != null) {
+      frameWidth = Math.max(frameWidth, this.frame.width);
+      frameHeight = Math.max(frameHeight, this.frame.height);
+    }
+    this.frame = new ComputedPixelImage(frameWidth, frameHeight);
+    this.track(frameWidth, frameHeight);
+  }
+
+  // keeps the changes to a grid of the given size without drawing it, as the
+  // carving worker does for the snapshots it publishes, starting over with
+  // every pixel changed when the grid is larger than any before
+  void track(int width, int height) {
+    if (this.dirtyFrom != null && width <= this.trackedWidth
+        && height <= this.dirtyFrom.length) {
+      return;
+    }
+    int rows = height;
+    if (this.dirtyFrom != null) {
+      rows = Math.max(rows, this.dirtyFrom.length);
+    }
+    this.trackedWidth = Math.max(this.trackedWidth, width);
+    this.dirtyFrom = new int[rows];
+    this.dirtyTo = new int[rows];
+    Arrays.fill(this.dirtyFrom, Integer.MAX_VALUE);
+    this.allDirty = true;
+  }
+
+  // returns the image of the given snapshot, repainting only the pixels it
+  // says changed since the snapshot shown before it, as the grid cannot mark
+  // them when it is carved on another thread
+  ComputedPixelImage show(Snapshot snapshot) {
+    this.fit(snapshot.width, snapshot.height);
+    boolean whole = this.allDirty || snapshot.allDirty;
+    // Loops through each row of the frame, painting the columns that changed,
+    // where a pixel past the snapshot's edge is clear
+    for (int row = 0; row < this.frame.height && row < snapshot.dirtyFrom.length; row += 1) {
+      int from = snapshot.dirtyFrom[row];
+      int to = Math.min(snapshot.dirtyTo[row], this.frame.width);
+      if (whole) {
+        from = 0;
+        to = this.frame.width;
+      }
+      int end = from;
+      if (row < snapshot.height) {
+        end = Math.max(from, Math.min(to, snapshot.width));
+      }
+      // Loops through each changed column inside the snapshot
+      for (int col = from; col < end; col += 1) {
+        this.frame.setPixel(col, row, new Color(snapshot.pixels[row * snapshot.stride + col]));
+      }
+      if (end < to) {
+        this.frame.setPixels(end, row, to - end, 1, this.clear);
+      }
+    }
+    this.allDirty = false;
+    return this.frame;
+  }
+
+  // paints the given columns of the given row from the grid, clearing those
+  // past its edge
+  void paint(Grid grid, int row, int from, int to) {
+    int end = from;
+    if (row < grid.height) {
+      end = Math.max(from, Math.min(to, grid.width));
+    }
+    // Loops through each column inside the grid and copies its color or shade
+    for (int col = from; col < end; col += 1) {
+      this.frame.setPixel(col, row, this.colorAt(grid, grid.index(row, col)));
+    }
+    if (end < to) {
+      this.frame.setPixels(end, row, to - end, 1, this.clear);
+    }
+  }
+
+  // returns the color the layer gives the pixel at the given index, shading
+  // the energy and seam weights as GridImages.renderGreyScale and renderSeams do
+  Color colorAt(Grid grid, int idx) {
+    if (this.layer.equals("colors")) {
+      return new Color(grid.colors[idx]);
+    }
+    return this.greys[grid.shadeAt(this.layer, idx, this.shownMax)];
+  }
+
+}
@@ -0,0 +1,22 @@
+// computes the energy of a Grid's pixels, which is how much each would be
+// missed if it were carved out
+// every function looks at no more than the pixels next to the one it
+// computes, so a seam removed or put back only changes the energy of the
+// pixels within one of it
+// the energies of different functions are in different units, so only the
+// energies of one grid under one function can be compared
+interface IEnergy {
+
+  // returns the name this function is picked by
+  String name();
+
+  // computes the energy of the pixel at the given row and column
+  float computeAt(Grid grid, int row, int col);
+
+  // computes the energy of every pixel of the grid
+  void computeAll(Grid grid);
+
+  // computes the energy of every pixel in the rows from (inclusive) to
+  // (exclusive)
+  void computeRows(Grid grid, int from, int to);
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+
+// Represents a Pixel in an Image
+interface IPixel {
+
+  // accumulates all the pixels to the right of this one, and returns a list of
+  // them
+  ArrayList<Pixel> accumulateRight(ArrayList<Pixel> arr);
+
+  // accumulates all the pixels of this pixel and the entire graph and returns it
+  // in an arraylist
+  ArrayList<ArrayList<Pixel>> accumulateBottom(ArrayList<ArrayList<Pixel>> arr);
+
+  // returns the top most pixel relative to the given pixel
+  Pixel findTopMost(Pixel acc);
+
+  // returns the left most pixel of the the given pixel
+  Pixel findLeftMost(Pixel acc);
+
+  // sets a this pixel's direction to a given pixel
+  void setReference(String dir, APixel n);
+
+  // determines if this pixel is a border around the image
+  boolean isBorder();
+
+  // computes the energy of this pixel
+  double computeEnergy();
+
+  // gets the accumulated weight of this pixel
+  double computeTotalWeight();
+
+  // computes the seaminfo of this pixel - serves useful for recursive computation
+  SeamInfo computeSeam();
+
+  // determines if this pixel, and its right pixels are wellformed
+  boolean wellFormedRow();
+
+  // determines if this pixel and the entire network of pixels
+  // is wellformed
+  boolean wellFormed();
+
+  // accumulates the seaminfo of this pixel and the ones on the right into an
+  // arraylist
+  ArrayList<SeamInfo> accumulateSeamInfoRight(ArrayList<SeamInfo> arr, boolean init, int idx);
+
+  // updates all the seam info values for horizontal seams, going downwards
+  ArrayList<SeamInfo> accumulateSeamInfoHorizontalDown(ArrayList<SeamInfo> arr, boolean init,
+      int idx);
+
+  // updates all the seam info values for horizontal seams, but for each column
+  ArrayList<SeamInfo> accumulateSeamInfoHorizontal(ArrayList<SeamInfo> arr);
+
+  // accumulates the seaminfo of this pixel and the entire graph into an array
+  // list
+  ArrayList<SeamInfo> accumulateSeamInfoBottom(ArrayList<SeamInfo> arr);
+
+}
@@ -0,0 +1,182 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+// decodes image files straight into the packed colors a Grid keeps, without
+// first decoding a whole image of the file's own type or a Color per pixel
+// where the file's reader can write packed ints, it decodes into an image
+// laid over the colors themselves; otherwise the file is read a tile or a
+// strip of rows at a time, each copied into the colors in bulk
+class ImageLoader {
+  // about how many pixels each strip read holds, where strips are read
+  int stripPixels;
+
+  // the size of the image read last
+  int width;
+  int height;
+
+  // constructor for ImageLoader, reading strips of about the given number of
+  // pixels
+  ImageLoader(int stripPixels) {
+    if (stripPixels < 1) {
+      throw new IllegalArgumentException("need at least one pixel per strip");
+    }
+    this.stripPixels = stripPixels;
+  }
+
+  // constructor for ImageLoader, reading strips of about a million pixels
+  ImageLoader() {
+    this(1 << 20);
+  }
+
+  // loads the given image file into a grid
+  Grid load(File file) throws IOException {
+    int[] colors = this.read(file);
+    return new Grid(colors, this.width, this.height);
+  }
+
+  // returns the colors of every pixel of the given image file, row by row,
+  // and records its size
+  int[] read(File file) throws IOException {
+    ImageInputStream stream = ImageIO.createImageInputStream(file);
+    if (stream == null) {
+      throw new IOException("cannot open " + file);
+    }
+    try {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("cannot decode " + file);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+        if ((long) this.width * this.height > Integer.MAX_VALUE - 8) {
+          throw new IOException(file + " has too many pixels");
+        }
+        int[] colors = new int[this.width * this.height];
+        if (this.readPacked(reader, colors)) {
+          return colors;
+        }
+        if (reader.isImageTiled(0)) {
+          this.readTiles(reader, colors);
+        }
+        else {
+          this.readStrips(reader, colors);
+        }
+        return colors;
+      }
+      finally {
+        reader.dispose();
+      }
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  // decodes the reader's image straight into the given colors if the reader
+  // can write packed ints, and returns whether it did
+  boolean readPacked(ImageReader reader, int[] colors) throws IOException {
+    ImageTypeSpecifier packed = this.packedType(reader);
+    if (packed == null) {
+      return false;
+    }
+
+    ColorModel model = packed.getColorModel();
+    WritableRaster raster = Raster.createWritableRaster(
+        packed.getSampleModel(this.width, this.height), new DataBufferInt(colors, colors.length),
+        null);
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setDestination(new BufferedImage(model, raster, false, null));
+    reader.read(0, param);
+    if (!model.hasAlpha()) {
+      // Loops through each pixel and makes it opaque, as getRGB would
+      for (int i = 0; i < colors.length; i += 1) {
+        colors[i] |= 0xFF000000;
+      }
+    }
+    return true;
+  }
+
+  // returns the type of packed ints the reader can decode its image into, or
+  // null if it cannot
+  ImageTypeSpecifier packedType(ImageReader reader) throws IOException {
+    ImageTypeSpecifier packed = null;
+    Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+    // Loops through each type the reader can decode into, looking for packed
+    // ints
+    while (types.hasNext() && packed == null) {
+      ImageTypeSpecifier type = types.next();
+      if (type.getBufferedImageType() == BufferedImage.TYPE_INT_RGB
+          || type.getBufferedImageType() == BufferedImage.TYPE_INT_ARGB) {
+        packed = type;
+      }
+    }
+    // the JPEG reader only offers bytes for color photographs, but it writes
+    // each decoded row through the destination's raster, so packed ints with
+    // the same bands work as well
+    if (packed == null && reader.getFormatName().equalsIgnoreCase("jpeg")
+        && reader.getRawImageType(0) != null
+        && reader.getRawImageType(0).getNumBands() == 3
+        && reader.getRawImageType(0).getColorModel().getColorSpace().isCS_sRGB()) {
+      packed = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB);
+    }
+    return packed;
+  }
+
+  // decodes the reader's image one tile at a time, copying each into the
+  // given colors
+  void readTiles(ImageReader reader, int[] colors) throws IOException {
+    int tileWidth = reader.getTileWidth(0);
+    int tileHeight = reader.getTileHeight(0);
+    int offsetX = reader.getTileGridXOffset(0);
+    int offsetY = reader.getTileGridYOffset(0);
+    int across = (this.width - offsetX + tileWidth - 1) / tileWidth;
+    int down = (this.height - offsetY + tileHeight - 1) / tileHeight;
+    // Loops through each tile and copies the part of it inside the image
+    for (int ty = 0; ty < down; ty += 1) {
+      for (int tx = 0; tx < across; tx += 1) {
+        BufferedImage tile = reader.readTile(0, tx, ty);
+        int x = offsetX + tx * tileWidth;
+        int y = offsetY + ty * tileHeight;
+        int w = Math.min(tile.getWidth(), this.width - x);
+        int h = Math.min(tile.getHeight(), this.height - y);
+        tile.getRGB(0, 0, w, h, colors, y * this.width + x, this.width);
+      }
+    }
+  }
+
+  // decodes the reader's image a strip of rows at a time where it can seek
+  // to any row cheaply, and otherwise all at once, copying the rows into the
+  // given colors
+  void readStrips(ImageReader reader, int[] colors) throws IOException {
+    if (!reader.isRandomAccessEasy(0)) {
+      BufferedImage image = reader.read(0);
+      image.getRGB(0, 0, this.width, this.height, colors, 0, this.width);
+      return;
+    }
+    int rows = Math.max(1, this.stripPixels / this.width);
+    ImageReadParam param = reader.getDefaultReadParam();
+    // Loops through each strip of rows and copies it
+    for (int y = 0; y < this.height; y += rows) {
+      int h = Math.min(rows, this.height - y);
+      param.setSourceRegion(new Rectangle(0, y, this.width, h));
+      BufferedImage strip = reader.read(0, param);
+      strip.getRGB(0, 0, this.width, h, colors, y * this.width, this.width);
+    }
+  }
+
+}
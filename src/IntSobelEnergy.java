@@ -0,0 +1,63 @@
+// computes the sobel energy of a Grid's pixels in integers, from the 8-bit
+// luma the grid keeps of their colors rather than their float brightness, and
+// as the sum of the two gradients' sizes rather than the length of the pair,
+// so that no pixel needs any floating-point math until its energy is stored
+// the luma is the mean of the three channels, as the brightness is, only
+// rounded down to a whole step of 255, so the energies are about 255 times
+// the sobel energy's and never fractions, which also keeps seam weights exact
+// the grid keeps the luma from the first full pass on, moving it with every
+// seam removed or put back, so no pass converts a color
+// everything outside the grid is black, as it is for the sobel energy
+class IntSobelEnergy extends AEnergy {
+
+  // returns the name this function is picked by
+  public String name() {
+    return "int";
+  }
+
+  // computes the energy of every pixel of the grid, having it keep the luma
+  // first, before any band is computed
+  public void computeAll(Grid grid) {
+    grid.keepLuma();
+    super.computeAll(grid);
+  }
+
+  // computes the energy of the pixel at the given row and column
+  public float computeAt(Grid grid, int row, int col) {
+    int topLeft = grid.lumaAt(row - 1, col - 1);
+    int top = grid.lumaAt(row - 1, col);
+    int topRight = grid.lumaAt(row - 1, col + 1);
+    int left = grid.lumaAt(row, col - 1);
+    int right = grid.lumaAt(row, col + 1);
+    int bottomLeft = grid.lumaAt(row + 1, col - 1);
+    int bottom = grid.lumaAt(row + 1, col);
+    int bottomRight = grid.lumaAt(row + 1, col + 1);
+    int hEnergy = (topLeft + 2 * left + bottomLeft) - (topRight + 2 * right + bottomRight);
+    int vEnergy = (topLeft + 2 * top + topRight) - (bottomLeft + 2 * bottom + bottomRight);
+    return Math.abs(hEnergy) + Math.abs(vEnergy);
+  }
+
+  // computes the energy of the inside of the given row
+  void computeInside(Grid grid, int row) {
+    byte[] luma = grid.luma;
+    float[] energy = grid.energy;
+    int here = grid.index(row, 0);
+    int up = here - grid.stride;
+    int down = here + grid.stride;
+    // Loops through the inside of the row, where every neighbor exists
+    for (int col = 1; col < grid.width - 1; col += 1) {
+      int topLeft = luma[up + col - 1] & 0xFF;
+      int top = luma[up + col] & 0xFF;
+      int topRight = luma[up + col + 1] & 0xFF;
+      int left = luma[here + col - 1] & 0xFF;
+      int right = luma[here + col + 1] & 0xFF;
+      int bottomLeft = luma[down + col - 1] & 0xFF;
+      int bottom = luma[down + col] & 0xFF;
+      int bottomRight = luma[down + col + 1] & 0xFF;
+      int hEnergy = (topLeft + 2 * left + bottomLeft) - (topRight + 2 * right + bottomRight);
+      int vEnergy = (topLeft + 2 * top + topRight) - (bottomLeft + 2 * bottom + bottomRight);
+      energy[here + col] = Math.abs(hEnergy) + Math.abs(vEnergy);
+    }
+  }
+
+}
@@ -0,0 +1,514 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+// carves an image too large for the heap, keeping its colors, brightness,
+// energy and the seam table's back pointers in memory-mapped files rather
+// than in a Grid
+// a seam is found in one pass down the rows, keeping only the cumulative
+// weights of the row before and the row being accumulated, while the back
+// pointers go to their file, from which the seam is then traced back up
+// removing a vertical seam shifts the rest of each row left in the files,
+// and horizontal seams are found by turning the image on its side, a tile at
+// a time, carving its columns and turning it back
+// so the heap only ever holds a few rows, a tile and a seam's path, however
+// large the image, while the operating system pages the files in and out
+// it finds the same seams as a Grid with the sobel energy, backward seam
+// costs and no mask, removing every vertical seam and then every horizontal
+// one, and only shrinks
+// the image is still decoded and saved through java's images, whose pixels
+// are numbered with an int, so it holds at most MAX_PIXELS, about 2.1
+// gigapixels, and a larger one is refused as it is loaded
+class MappedCarver {
+  // the most pixels an image carved this way can have
+  static final int MAX_PIXELS = Integer.MAX_VALUE - 8;
+  // where the files are made
+  File directory;
+  // strips of rows decoded at once, where the reader cannot decode into the
+  // files directly, are about this many pixels
+  int stripPixels;
+
+  int width;
+  int height;
+  // whether the image is on its side, so that its rows are the columns of
+  // the image as loaded
+  boolean transposed;
+
+  MappedPlane colors;
+  MappedPlane brightness;
+  MappedPlane energy;
+  // which neighbor the cheapest seam ending at each pixel came from, as in
+  // Grid.cameFrom, for the seam found last
+  MappedPlane cameFrom;
+  // the colors' file from before the image was last turned on its side, kept
+  // to turn it back into, or null if it has not been
+  MappedPlane spare;
+
+  // constructor for MappedCarver, making its files in the given directory and
+  // decoding strips of about the given number of pixels
+  MappedCarver(File directory, int stripPixels) {
+    if (stripPixels < 1) {
+      throw new IllegalArgumentException("need at least one pixel per strip");
+    }
+    this.directory = directory;
+    this.stripPixels = stripPixels;
+  }
+
+  // constructor for MappedCarver, making its files in the temporary directory
+  // and decoding strips of about a million pixels
+  MappedCarver() {
+    this(new File(System.getProperty("java.io.tmpdir")), 1 << 20);
+  }
+
+  // returns a new plane of the given size whose elements have the given
+  // number of bytes, in a new file of this carver's directory
+  MappedPlane newPlane(int rows, int stride, int bytes) throws IOException {
+    return new MappedPlane(File.createTempFile("carve", ".plane", this.directory), rows, stride,
+        bytes);
+  }
+
+  // returns the given plane laid out as the given size, if there is one
+  // whose file is large enough, or else a new plane in place of it
+  // the image only shrinks, so once made, a plane fits it turned either way
+  MappedPlane reuse(MappedPlane plane, int rows, int stride, int bytes) throws IOException {
+    if (plane != null && plane.fits(rows, stride)) {
+      plane.reshape(rows, stride);
+      return plane;
+    }
+    if (plane != null) {
+      plane.close();
+    }
+    return this.newPlane(rows, stride, bytes);
+  }
+
+  // throws an IOException if an image of the given size, read from the given
+  // file, has more pixels than can be carved
+  void checkSize(File input, int width, int height) throws IOException {
+    if ((long) width * height > MAX_PIXELS) {
+      throw new IOException(input + " is " + width + " by " + height
+          + " pixels, more than the " + MAX_PIXELS + " an image can have");
+    }
+  }
+
+  // loads the given image file into new files and computes the energy of
+  // every pixel
+  // where the file's reader can write packed ints, as for ImageLoader, it
+  // decodes straight into an image laid over the colors' file; otherwise it
+  // decodes a strip of rows at a time, copying each row into the file
+  void load(File input) throws IOException {
+    ImageInputStream stream = ImageIO.createImageInputStream(input);
+    if (stream == null) {
+      throw new IOException("cannot open " + input);
+    }
+    try {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("cannot decode " + input);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, false, true);
+        this.close();
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+        this.transposed = false;
+        this.checkSize(input, this.width, this.height);
+        this.colors = this.newPlane(this.height, this.width, 4);
+        ImageTypeSpecifier packed = new ImageLoader().packedType(reader);
+        if (packed != null) {
+          this.readPacked(reader, packed);
+        }
+        else {
+          this.readStrips(reader);
+        }
+      }
+      finally {
+        reader.dispose();
+      }
+    }
+    finally {
+      stream.close();
+    }
+    this.initializeEnergy();
+  }
+
+  // decodes the reader's image into an image of the given packed type laid
+  // over the colors' file, and makes its pixels opaque if the type has no
+  // alpha, as getRGB would
+  void readPacked(ImageReader reader, ImageTypeSpecifier packed) throws IOException {
+    ColorModel model = packed.getColorModel();
+    WritableRaster raster = Raster.createWritableRaster(
+        packed.getSampleModel(this.width, this.height), new MappedColors(this.colors), null);
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setDestination(new BufferedImage(model, raster, false, null));
+    reader.read(0, param);
+    if (!model.hasAlpha()) {
+      int[] row = new int[this.width];
+      // Loops through each row and makes its pixels opaque
+      for (int y = 0; y < this.height; y += 1) {
+        this.colors.getInts(y, 0, row, 0, this.width);
+        for (int x = 0; x < this.width; x += 1) {
+          row[x] |= 0xFF000000;
+        }
+        this.colors.putInts(y, 0, row, 0, this.width);
+      }
+    }
+  }
+
+  // decodes the reader's image a strip of rows at a time, copying each row
+  // into the colors' file
+  // a reader that cannot seek to a row decodes the rows above each strip
+  // again, so this is slow for large images, but never holds more than a
+  // strip
+  void readStrips(ImageReader reader) throws IOException {
+    int rows = Math.max(1, this.stripPixels / this.width);
+    int[] row = new int[this.width];
+    ImageReadParam param = reader.getDefaultReadParam();
+    // Loops through each strip of rows, decoding it and copying its rows
+    for (int y = 0; y < this.height; y += rows) {
+      int h = Math.min(rows, this.height - y);
+      param.setSourceRegion(new Rectangle(0, y, this.width, h));
+      BufferedImage strip = reader.read(0, param);
+      for (int i = 0; i < h; i += 1) {
+        strip.getRGB(0, i, this.width, 1, row, 0, this.width);
+        this.colors.putInts(y + i, 0, row, 0, this.width);
+      }
+    }
+  }
+
+  // returns the image of the colors, laid over their file, which an image
+  // writer reads from without copying the whole image onto the heap
+  BufferedImage asImage() {
+    WritableRaster raster = Raster.createPackedRaster(new MappedColors(this.colors),
+        this.colors.stride, this.colors.rows, this.colors.stride,
+        new int[] { 0xFF0000, 0xFF00, 0xFF }, null);
+    return new BufferedImage(new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF), raster, false,
+        null).getSubimage(0, 0, this.width, this.height);
+  }
+
+  // lays out the files for the brightness, energy and back pointers of the
+  // colors, made the first time, and computes the brightness and energy of
+  // every pixel
+  void initializeEnergy() throws IOException {
+    this.brightness = this.reuse(this.brightness, this.height, this.width, 4);
+    this.energy = this.reuse(this.energy, this.height, this.width, 4);
+    this.cameFrom = this.reuse(this.cameFrom, this.height, this.width, 1);
+    int[] row = new int[this.width];
+    float[] lum = new float[this.width];
+    // Loops through each row and computes its brightness
+    for (int y = 0; y < this.height; y += 1) {
+      this.colors.getInts(y, 0, row, 0, this.width);
+      for (int x = 0; x < this.width; x += 1) {
+        lum[x] = new GridUtils().brightnessOf(row[x]);
+      }
+      this.brightness.putFloats(y, 0, lum, 0, this.width);
+    }
+
+    float[] above = new float[this.width];
+    float[] middle = new float[this.width];
+    float[] below = new float[this.width];
+    float[] energies = new float[this.width];
+    this.brightness.getFloats(0, 0, middle, 0, this.width);
+    // Loops through each row, sliding the rows above and below along with it
+    for (int y = 0; y < this.height; y += 1) {
+      if (y + 1 < this.height) {
+        this.brightness.getFloats(y + 1, 0, below, 0, this.width);
+      }
+      else {
+        Arrays.fill(below, 0);
+      }
+      for (int x = 0; x < this.width; x += 1) {
+        energies[x] = this.sobel(above, middle, below, x);
+      }
+      this.energy.putFloats(y, 0, energies, 0, this.width);
+      float[] spare = above;
+      above = middle;
+      middle = below;
+      below = spare;
+    }
+  }
+
+  // returns the sobel energy of the pixel at the given column of the middle
+  // of the given rows of brightness, which are all black outside the image,
+  // computed as SobelEnergy does
+  float sobel(float[] above, float[] middle, float[] below, int x) {
+    float topLeft = this.at(above, x - 1);
+    float top = above[x];
+    float topRight = this.at(above, x + 1);
+    float left = this.at(middle, x - 1);
+    float right = this.at(middle, x + 1);
+    float bottomLeft = this.at(below, x - 1);
+    float bottom = below[x];
+    float bottomRight = this.at(below, x + 1);
+    float hEnergy = (topLeft + 2 * left + bottomLeft) - (topRight + 2 * right + bottomRight);
+    float vEnergy = (topLeft + 2 * top + topRight) - (bottomLeft + 2 * bottom + bottomRight);
+    return (float) Math.sqrt(hEnergy * hEnergy + vEnergy * vEnergy);
+  }
+
+  // returns the brightness at the given column of the given row, which is 0
+  // outside the image
+  float at(float[] row, int x) {
+    if (x < 0 || x >= this.width) {
+      return 0;
+    }
+    return row[x];
+  }
+
+  // finds the cheapest vertical seam one row at a time, writing each row's
+  // back pointers to their file, and returns its column in each row
+  // it breaks ties as Grid.accumulateVertical and Grid.findMinSeam do
+  int[] findSeam() {
+    float[] previous = new float[this.width];
+    float[] current = new float[this.width];
+    float[] energies = new float[this.width];
+    byte[] from = new byte[this.width];
+    // Loops through each row, accumulating from the row before
+    for (int y = 0; y < this.height; y += 1) {
+      this.energy.getFloats(y, 0, energies, 0, this.width);
+      for (int x = 0; x < this.width; x += 1) {
+        byte came = 0;
+        float min = 0;
+        if (y > 0) {
+          min = previous[x];
+          if (x > 0 && previous[x - 1] <= min) {
+            came = -1;
+            min = previous[x - 1];
+          }
+          if (x < this.width - 1 && previous[x + 1] < min) {
+            came = 1;
+            min = previous[x + 1];
+          }
+        }
+        current[x] = min + energies[x];
+        from[x] = came;
+      }
+      this.cameFrom.putBytes(y, 0, from, 0, this.width);
+      float[] spare = previous;
+      previous = current;
+      current = spare;
+    }
+    int end = 0;
+    // Loops through the last row and keeps the cheapest seam
+    for (int x = 1; x < this.width; x += 1) {
+      if (previous[x] < previous[end]) {
+        end = x;
+      }
+    }
+    int[] path = new int[this.height];
+    // Loops backwards through the rows, reading where the seam came from
+    for (int y = this.height - 1; y >= 0; y -= 1) {
+      path[y] = end;
+      end += this.cameFrom.getByte(y, end);
+    }
+    return path;
+  }
+
+  // removes the vertical seam with the given column in each row, shifting
+  // the rest of each row left, and recomputes the energy around it
+  void removeSeam(int[] path) {
+    int[] colorTail = new int[this.width];
+    float[] floatTail = new float[this.width];
+    // Loops through each row, closing the gap left by the seam's pixel
+    for (int y = 0; y < this.height; y += 1) {
+      int x = path[y];
+      int after = this.width - 1 - x;
+      this.colors.getInts(y, x + 1, colorTail, 0, after);
+      this.colors.putInts(y, x, colorTail, 0, after);
+      this.brightness.getFloats(y, x + 1, floatTail, 0, after);
+      this.brightness.putFloats(y, x, floatTail, 0, after);
+      this.energy.getFloats(y, x + 1, floatTail, 0, after);
+      this.energy.putFloats(y, x, floatTail, 0, after);
+    }
+    this.width -= 1;
+
+    float[] above = new float[this.width];
+    float[] middle = new float[this.width];
+    float[] below = new float[this.width];
+    float[] energies = new float[this.width];
+    // Loops through each row, recomputing the columns next to where the seam
+    // was in it and in the rows either side, as Grid.updateEnergyAround does,
+    // from only the brightness of those columns and the ones either side
+    for (int y = 0; y < this.height; y += 1) {
+      int lo = path[y];
+      int hi = path[y];
+      if (y > 0) {
+        lo = Math.min(lo, path[y - 1]);
+        hi = Math.max(hi, path[y - 1]);
+      }
+      if (y < this.height - 1) {
+        lo = Math.min(lo, path[y + 1]);
+        hi = Math.max(hi, path[y + 1]);
+      }
+      int first = Math.max(0, lo - 1);
+      int last = Math.min(this.width - 1, hi + 1);
+      if (first > last) {
+        continue;
+      }
+      int start = Math.max(0, first - 1);
+      int count = Math.min(this.width - 1, last + 1) - start + 1;
+      this.readBrightness(y - 1, start, above, count);
+      this.readBrightness(y, start, middle, count);
+      this.readBrightness(y + 1, start, below, count);
+      for (int x = first; x <= last; x += 1) {
+        energies[x] = this.sobel(above, middle, below, x);
+      }
+      this.energy.putFloats(y, first, energies, first, last - first + 1);
+    }
+  }
+
+  // copies the given number of columns of brightness of the given row,
+  // starting at the given column, into the same columns of the given array,
+  // or zeros if the row is outside the image
+  void readBrightness(int y, int start, float[] into, int count) {
+    if (y < 0 || y >= this.height) {
+      Arrays.fill(into, start, start + count, 0);
+    }
+    else {
+      this.brightness.getFloats(y, start, into, start, count);
+    }
+  }
+
+  // turns the image on its side, copying its colors a square tile at a time
+  // into the file they were last turned from, or a new one the first time,
+  // and computes its brightness and energy again
+  void transpose() throws IOException {
+    int tile = 256;
+    MappedPlane turned = this.reuse(this.spare, this.width, this.height, 4);
+    int[] block = new int[tile * tile];
+    int[] column = new int[tile];
+    // Loops through each tile, reading its rows and writing them as columns
+    for (int ty = 0; ty < this.height; ty += tile) {
+      int h = Math.min(tile, this.height - ty);
+      for (int tx = 0; tx < this.width; tx += tile) {
+        int w = Math.min(tile, this.width - tx);
+        for (int i = 0; i < h; i += 1) {
+          this.colors.getInts(ty + i, tx, block, i * tile, w);
+        }
+        for (int j = 0; j < w; j += 1) {
+          for (int i = 0; i < h; i += 1) {
+            column[i] = block[i * tile + j];
+          }
+          turned.putInts(tx + j, ty, column, 0, h);
+        }
+      }
+    }
+    this.spare = this.colors;
+    this.colors = turned;
+    int swap = this.width;
+    this.width = this.height;
+    this.height = swap;
+    this.transposed = !this.transposed;
+    this.initializeEnergy();
+  }
+
+  // removes vertical and then horizontal seams until the image is the given
+  // size, and returns how many seams it removed
+  int carveTo(int targetWidth, int targetHeight) throws IOException {
+    if (targetWidth < 1 || targetHeight < 1 || targetWidth > this.width
+        || targetHeight > this.height) {
+      throw new IllegalArgumentException("can only carve down to a smaller size");
+    }
+    int removed = 0;
+    // Loops until the image is narrow enough
+    while (this.width > targetWidth) {
+      this.removeSeam(this.findSeam());
+      removed += 1;
+    }
+    if (this.height > targetHeight) {
+      this.transpose();
+      // Loops until the image, on its side, is short enough
+      while (this.width > targetHeight) {
+        this.removeSeam(this.findSeam());
+        removed += 1;
+      }
+      this.transpose();
+    }
+    return removed;
+  }
+
+  // saves the image to the given file, in the format named by its extension
+  void save(File output) throws IOException {
+    if (this.transposed) {
+      this.transpose();
+    }
+    String name = output.getName();
+    String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+    if (!ImageIO.write(this.asImage(), format, output)) {
+      throw new IOException("no writer for ." + format + " files");
+    }
+  }
+
+  // unmaps and deletes the files for the brightness, energy and back
+  // pointers, and the colors' two too if asked
+  void closePlanes(boolean andColors) throws IOException {
+    if (this.brightness != null) {
+      this.brightness.close();
+      this.energy.close();
+      this.cameFrom.close();
+      this.brightness = null;
+      this.energy = null;
+      this.cameFrom = null;
+    }
+    if (andColors && this.colors != null) {
+      this.colors.close();
+      this.colors = null;
+    }
+    if (andColors && this.spare != null) {
+      this.spare.close();
+      this.spare = null;
+    }
+  }
+
+  // unmaps and deletes every file
+  void close() throws IOException {
+    this.closePlanes(true);
+  }
+
+}
+
+// the colors in a MappedPlane as the data of an image, one int per pixel
+// numbered row by row across the plane's stride, so that image readers and
+// writers can use the file as they would an array
+class MappedColors extends DataBuffer {
+  MappedPlane plane;
+
+  // constructor for MappedColors, over every row of the given plane, which
+  // can hold at most MappedCarver.MAX_PIXELS
+  MappedColors(MappedPlane plane) {
+    super(DataBuffer.TYPE_INT, MappedColors.sizeOf(plane));
+    this.plane = plane;
+  }
+
+  // returns the number of pixels in the given plane, if an image can have
+  // that many
+  static int sizeOf(MappedPlane plane) {
+    if ((long) plane.rows * plane.stride > MappedCarver.MAX_PIXELS) {
+      throw new IllegalArgumentException("too many pixels for an image");
+    }
+    return plane.rows * plane.stride;
+  }
+
+  // returns the color at the given index
+  public int getElem(int bank, int i) {
+    return this.plane.getInt(i / this.plane.stride, i % this.plane.stride);
+  }
+
+  // sets the color at the given index
+  public void setElem(int bank, int i, int val) {
+    this.plane.putInt(i / this.plane.stride, i % this.plane.stride, val);
+  }
+
+}
@@ -0,0 +1,198 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// a file of rows of fixed-size elements, mapped into memory a segment of rows
+// at a time since one mapping can be no larger than 2 GB, and read and
+// written a row or part of a row at a time through the segments
+class MappedPlane {
+  // segments are at most this many bytes
+  static final long SEGMENT_BYTES = 1L << 30;
+
+  File file;
+  RandomAccessFile access;
+  // how many bytes the file holds, and each element
+  long capacity;
+  int elementBytes;
+  int rows;
+  // elements from the start of one row to the next
+  int stride;
+  // how many rows each segment holds
+  int rowsPerSegment;
+  MappedByteBuffer[] segments;
+  ByteBuffer[] bytes;
+  IntBuffer[] ints;
+  FloatBuffer[] floats;
+
+  // constructor for MappedPlane, mapping the given file as the given number
+  // of rows of the given stride of elements of the given number of bytes
+  MappedPlane(File file, int rows, int stride, int elementBytes) throws IOException {
+    long rowBytes = (long) stride * elementBytes;
+    if (rowBytes > SEGMENT_BYTES) {
+      throw new IllegalArgumentException("a row cannot be larger than a segment");
+    }
+    this.file = file;
+    this.rows = rows;
+    this.stride = stride;
+    this.elementBytes = elementBytes;
+    this.capacity = rows * rowBytes;
+    this.access = new RandomAccessFile(file, "rw");
+    this.access.setLength(this.capacity);
+    this.map();
+  }
+
+  // returns whether the file holds the given number of rows of the given
+  // stride
+  boolean fits(int rows, int stride) {
+    return (long) rows * stride * this.elementBytes <= this.capacity;
+  }
+
+  // lays the plane out as the given number of rows of the given stride,
+  // which must fit in its file, such as the same image turned on its side
+  // the file is only mapped again if it is mapped as more than one segment,
+  // whose rows would no longer line up with the segments
+  void reshape(int rows, int stride) throws IOException {
+    if (!this.fits(rows, stride)) {
+      throw new IllegalArgumentException("plane is too small");
+    }
+    if ((long) stride * this.elementBytes > SEGMENT_BYTES) {
+      throw new IllegalArgumentException("a row cannot be larger than a segment");
+    }
+    this.rows = rows;
+    this.stride = stride;
+    if (this.segments.length == 1
+        && (long) rows * stride * this.elementBytes <= this.segments[0].capacity()) {
+      this.rowsPerSegment = Math.max(1, rows);
+      return;
+    }
+    this.unmapAll();
+    this.map();
+  }
+
+  // maps the file as segments of whole rows as it is laid out now
+  void map() throws IOException {
+    int rows = this.rows;
+    long rowBytes = (long) this.stride * this.elementBytes;
+    this.rowsPerSegment = (int) Math.max(1, Math.min(rows, SEGMENT_BYTES / rowBytes));
+    int count = (rows + this.rowsPerSegment - 1) / this.rowsPerSegment;
+    this.segments = new MappedByteBuffer[count];
+    this.bytes = new ByteBuffer[count];
+    this.ints = new IntBuffer[count];
+    this.floats = new FloatBuffer[count];
+    FileChannel channel = this.access.getChannel();
+    // Loops through each segment and maps it
+    for (int i = 0; i < count; i += 1) {
+      long start = i * this.rowsPerSegment * rowBytes;
+      long size = Math.min(this.rowsPerSegment, rows - i * this.rowsPerSegment) * rowBytes;
+      this.segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+      this.segments[i].order(ByteOrder.nativeOrder());
+      this.bytes[i] = this.segments[i];
+      this.ints[i] = this.segments[i].asIntBuffer();
+      this.floats[i] = this.segments[i].asFloatBuffer();
+    }
+  }
+
+  // returns the index of the given row and column within its segment
+  int offset(int row, int col) {
+    return (row % this.rowsPerSegment) * this.stride + col;
+  }
+
+  // copies the given number of ints from the given row, starting at the
+  // given column, into the given array at the given position
+  void getInts(int row, int col, int[] into, int at, int count) {
+    this.ints[row / this.rowsPerSegment].get(this.offset(row, col), into, at, count);
+  }
+
+  // copies the given number of ints from the given array at the given
+  // position into the given row, starting at the given column
+  void putInts(int row, int col, int[] from, int at, int count) {
+    this.ints[row / this.rowsPerSegment].put(this.offset(row, col), from, at, count);
+  }
+
+  // copies floats out of the given row, as getInts does
+  void getFloats(int row, int col, float[] into, int at, int count) {
+    this.floats[row / this.rowsPerSegment].get(this.offset(row, col), into, at, count);
+  }
+
+  // copies floats into the given row, as putInts does
+  void putFloats(int row, int col, float[] from, int at, int count) {
+    this.floats[row / this.rowsPerSegment].put(this.offset(row, col), from, at, count);
+  }
+
+  // copies bytes into the given row, as putInts does
+  void putBytes(int row, int col, byte[] from, int at, int count) {
+    this.bytes[row / this.rowsPerSegment].put(this.offset(row, col), from, at, count);
+  }
+
+  // returns the int at the given row and column
+  int getInt(int row, int col) {
+    return this.ints[row / this.rowsPerSegment].get(this.offset(row, col));
+  }
+
+  // sets the int at the given row and column
+  void putInt(int row, int col, int value) {
+    this.ints[row / this.rowsPerSegment].put(this.offset(row, col), value);
+  }
+
+  // returns the float at the given row and column
+  float getFloat(int row, int col) {
+    return this.floats[row / this.rowsPerSegment].get(this.offset(row, col));
+  }
+
+  // sets the float at the given row and column
+  void putFloat(int row, int col, float value) {
+    this.floats[row / this.rowsPerSegment].put(this.offset(row, col), value);
+  }
+
+  // returns the byte at the given row and column
+  byte getByte(int row, int col) {
+    return this.bytes[row / this.rowsPerSegment].get(this.offset(row, col));
+  }
+
+  // unmaps the file and forgets its segments, so that using them fails
+  // rather than reading memory that is no longer mapped
+  void unmapAll() {
+    MappedByteBuffer[] mapped = this.segments;
+    this.segments = null;
+    this.bytes = null;
+    this.ints = null;
+    this.floats = null;
+    // Loops through each segment and unmaps it
+    for (MappedByteBuffer segment : mapped) {
+      this.unmap(segment);
+    }
+  }
+
+  // unmaps the given segment now rather than when it is collected, through
+  // the JDK's Unsafe.invokeCleaner, or leaves it to the collector on a JDK
+  // without one
+  void unmap(MappedByteBuffer segment) {
+    try {
+      Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafe.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), segment);
+    }
+    catch (ReflectiveOperationException e) {
+      // the mapping goes when the segment is collected instead
+    }
+  }
+
+  // unmaps the file, closes it and deletes it, after which the plane cannot
+  // be used
+  void close() throws IOException {
+    if (this.segments != null) {
+      this.unmapAll();
+    }
+    this.access.close();
+    this.file.delete();
+  }
+
+}
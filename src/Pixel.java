@@ -0,0 +1,209 @@
+import java.awt.Color;
+import java.util.ArrayList;
+
+// Represents an actual Pixel in an image, 
+class Pixel extends APixel {
+  double energy;
+  SeamInfo seam;
+  Color ogColor;
+
+  // constructor for pixel class
+  Pixel(Color color, APixel left, APixel right, APixel top, APixel bottom) {
+    super(color, left, right, top, bottom);
+    this.seam = new SeamInfo(this, this.energy, null);
+    ogColor = this.color;
+  }
+
+  // an actual pixel is not a border
+  public boolean isBorder() {
+    return false;
+  }
+
+  // returns a list of pixels including this and the right neighbors
+  // walks the row with a loop so that wide images can't overflow the stack
+  public ArrayList<Pixel> accumulateRight(ArrayList<Pixel> arr) {
+    // Loops through this pixel and each one to its right
+    for (APixel curr = this; !curr.isBorder(); curr = curr.right) {
+      arr.add((Pixel) curr);
+    }
+    return arr;
+  }
+
+  // returns a list of all pixels in this graph of pixels
+  public ArrayList<ArrayList<Pixel>> accumulateBottom(ArrayList<ArrayList<Pixel>> arr) {
+    // Loops through this pixel and each one below it, adding their rows
+    for (APixel curr = this; !curr.isBorder(); curr = curr.bottom) {
+      arr.add(curr.accumulateRight(new ArrayList<Pixel>()));
+    }
+    return arr;
+  }
+
+  // finds the minimum total weight pixel of the top left, top, and topright of
+  // this pixel
+  APixel findMinSeamAbove() {
+    APixel min = this.top.left;
+    if (min.computeTotalWeight() == -1
+        || this.top.computeTotalWeight() < min.computeTotalWeight()) {
+      min = this.top;
+    }
+    if (this.top.right.computeTotalWeight() != -1
+        && this.top.right.computeTotalWeight() < min.computeTotalWeight()) {
+      min = this.top.right;
+    }
+    return min;
+  }
+
+  // finds the minimum seam toward the left of this pixel
+  APixel findMinSeamLeft() {
+    APixel min = this.left.top;
+    if (min.computeTotalWeight() == -1
+        || this.left.computeTotalWeight() < min.computeTotalWeight()) {
+      min = this.left;
+    }
+    if (this.left.bottom.computeTotalWeight() != -1
+        && this.left.bottom.computeTotalWeight() < min.computeTotalWeight()) {
+      min = this.left.bottom;
+    }
+    return min;
+  }
+
+  // returns the energy of this pixel
+  public double computeEnergy() {
+    return this.energy;
+  }
+
+  // returns the total accumulatedweight of this pixel
+  public double computeTotalWeight() {
+    return this.seam.totalWeight;
+  }
+
+  // returns the seam of this pixel
+  public SeamInfo computeSeam() {
+    return this.seam;
+  }
+
+  // returns the left most pixel of relative to this pixel
+  public Pixel findLeftMost(Pixel acc) {
+    Pixel curr = this;
+    // Loops left until the next pixel is the border
+    while (!curr.left.isBorder()) {
+      curr = (Pixel) curr.left;
+    }
+    return curr;
+  }
+
+  // returns the left most pixel of relative to this pixel
+  public Pixel findTopMost(Pixel acc) {
+    Pixel curr = this;
+    // Loops up until the next pixel is the border
+    while (!curr.top.isBorder()) {
+      curr = (Pixel) curr.top;
+    }
+    return curr;
+  }
+
+  // sets the left, right, top, bottom of this pixel to a given
+  public void setReference(String dir, APixel n) {
+    if (dir.equals("t")) {
+      this.top = n;
+    }
+    else if (dir.equals("r")) {
+      this.right = n;
+    }
+    else if (dir.equals("l")) {
+      this.left = n;
+    }
+    else if (dir.equals("b")) {
+      this.bottom = n;
+    }
+    else {
+      throw new IllegalArgumentException("Direction incorrect");
+    }
+  }
+
+  // determines if this row of pixels is well formed
+  public boolean wellFormedRow() {
+    // Loops through this pixel and each one to its right
+    for (APixel curr = this; !curr.isBorder(); curr = curr.right) {
+      if (curr.left.top != curr.top.left || curr.right.top != curr.top.right
+          || curr.bottom.right != curr.right.bottom || curr.bottom.left != curr.left.bottom) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // determines if this graph of pixels is wellformed
+  public boolean wellFormed() {
+    // Loops through this pixel and each one below it, checking their rows
+    for (APixel curr = this; !curr.isBorder(); curr = curr.bottom) {
+      if (!curr.wellFormedRow()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // accumulates the seaminfos in this column of pixels, like
+  // accumulateSeamInfoRight
+  public ArrayList<SeamInfo> accumulateSeamInfoHorizontalDown(ArrayList<SeamInfo> arr, boolean init,
+      int idx) {
+    // Loops through this pixel and each one below it
+    for (APixel curr = this; !curr.isBorder(); curr = curr.bottom) {
+      Pixel p = (Pixel) curr;
+      if (init) {
+        arr.add(new SeamInfo(p, p.energy, null));
+      }
+      else {
+        APixel min = p.findMinSeamLeft();
+        p.seam = new SeamInfo(p, min.computeTotalWeight() + p.energy, min.computeSeam());
+        arr.set(idx, p.seam);
+      }
+      idx += 1;
+    }
+    return arr;
+  }
+
+  // accumulates the seaminfos in this row of pixels
+  // init refers to the initialization of the accumulator, where the seam info
+  // gets initialized to the pixel's energy
+  // whereas otherwise we accumulate
+  public ArrayList<SeamInfo> accumulateSeamInfoRight(ArrayList<SeamInfo> arr, boolean init,
+      int idx) {
+    // Loops through this pixel and each one to its right
+    for (APixel curr = this; !curr.isBorder(); curr = curr.right) {
+      Pixel p = (Pixel) curr;
+      if (init) {
+        arr.add(new SeamInfo(p, p.energy, null));
+      }
+      else {
+        APixel min = p.findMinSeamAbove();
+        p.seam = new SeamInfo(p, min.computeTotalWeight() + p.energy, min.computeSeam());
+        arr.set(idx, p.seam);
+      }
+      idx += 1;
+    }
+    return arr;
+  }
+
+  // accumulates the seam infos of an entire graph and outputs it into an array
+  // list
+  public ArrayList<SeamInfo> accumulateSeamInfoBottom(ArrayList<SeamInfo> arr) {
+    // Loops through this pixel and each one below it, accumulating their rows
+    for (APixel curr = this; !curr.isBorder(); curr = curr.bottom) {
+      arr = curr.accumulateSeamInfoRight(arr, false, 0);
+    }
+    return arr;
+  }
+
+  // updates all the seam info values for horizontal seams, but for each column
+  public ArrayList<SeamInfo> accumulateSeamInfoHorizontal(ArrayList<SeamInfo> arr) {
+    // Loops through this pixel and each one to its right, accumulating their
+    // columns
+    for (APixel curr = this; !curr.isBorder(); curr = curr.right) {
+      arr = curr.accumulateSeamInfoHorizontalDown(arr, false, 0);
+    }
+    return arr;
+  }
+
+}
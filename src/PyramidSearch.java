@@ -0,0 +1,360 @@
+import java.util.Arrays;
+
+// finds a Grid's cheapest seam coarse to fine rather than over the whole seam
+// table: the cost of every pixel is summed into blocks a factor on a side, the
+// cheapest seam through the blocks is found, and then the cheapest seam at
+// full size is found only within a band either side of the line through the
+// middle of the blocks it went through
+// the blocks are summed once and then moved along with each seam the grid
+// removes, so a seam costs a table of only the blocks and of the band, and a
+// pass over the pixels next to the seam removed and on the edges of the
+// blocks past it
+// it may miss a cheaper seam that leaves the band, so a seam that reaches
+// the edge of the band is found again in one twice as wide, and it can also
+// find the exact seam each time and count how often the two differ
+class PyramidSearch {
+  // how many pixels each block of the coarse level has on a side
+  int factor;
+  // how many pixels either side of the coarse seam the full size seam may be
+  int band;
+  // whether to also find the exact seam each time and compare the two
+  boolean compare;
+
+  // how many seams have been found, how many of those were found again in
+  // a wider band, and of those compared, how many differed from the exact
+  // seam, how much more the refined seams cost than the exact ones between
+  // them, and how much the exact ones cost
+  int searches;
+  int widened;
+  int compared;
+  int differed;
+  double extraCost;
+  double exactCost;
+
+  // the sum of the costs of the pixels of each block, a block for every
+  // factor pixels on a side of the grid, row by row, in doubles so that a
+  // mask's weight does not swamp the energy, with how many blocks make a
+  // row, and the grid and version of it they were summed for
+  double[] blocks;
+  int blockCols;
+  Grid summed;
+  int summedVersion;
+  // whether the blocks are being moved along with a seam being removed
+  boolean shifting;
+  // the coarse seam table and the band's table, kept between seams
+  double[] blockWeights;
+  byte[] blockFrom;
+  byte[] bandFrom;
+
+  // constructor for PyramidSearch, with blocks of the given size and a band
+  // of the given width either side of the coarse seam
+  PyramidSearch(int factor, int band, boolean compare) {
+    if (factor < 2) {
+      throw new IllegalArgumentException("blocks must be at least 2 pixels on a side");
+    }
+    if (band < 1) {
+      throw new IllegalArgumentException("band must be at least 1 pixel wide");
+    }
+    this.factor = factor;
+    this.band = band;
+    this.compare = compare;
+  }
+
+  // returns the cheapest seam in the given direction of the given grid within
+  // the band around the coarse seam, comparing it with the exact one if asked
+  Seam findMinSeam(Grid grid, boolean isHorizontal) {
+    int length = grid.height;
+    int across = grid.width;
+    if (isHorizontal) {
+      length = grid.width;
+      across = grid.height;
+    }
+    int[] centers = this.coarseCenters(grid, isHorizontal, length, across);
+    int band = this.band;
+    Seam seam = this.refine(grid, isHorizontal, length, across, centers, band);
+    // Loops until the seam stays inside the band, as it does at the latest
+    // once the band covers the grid
+    while (this.reachesEdge(seam, across, centers, band)) {
+      band *= 2;
+      seam = this.refine(grid, isHorizontal, length, across, centers, band);
+      this.widened += 1;
+    }
+    this.searches += 1;
+    if (this.compare) {
+      Seam exact = grid.findExactSeam(isHorizontal);
+      this.compared += 1;
+      this.exactCost += exact.totalWeight;
+      if (!Arrays.equals(exact.path, seam.path)) {
+        this.differed += 1;
+        this.extraCost += seam.totalWeight - exact.totalWeight;
+      }
+    }
+    return seam;
+  }
+
+  // sums the cost of every pixel of the given grid into its block
+  void sumBlocks(Grid grid) {
+    int f = this.factor;
+    this.blockCols = (grid.width + f - 1) / f;
+    int size = this.blockCols * ((grid.height + f - 1) / f);
+    if (this.blocks == null || this.blocks.length < size) {
+      this.blocks = new double[size];
+    }
+    Arrays.fill(this.blocks, 0, size, 0);
+    // Loops through each pixel and adds its cost to its block
+    for (int row = 0; row < grid.height; row += 1) {
+      int at = (row / f) * this.blockCols;
+      for (int col = 0; col < grid.width; col += 1) {
+        this.blocks[at + col / f] += grid.costAt(grid.index(row, col));
+      }
+    }
+    this.summed = grid;
+    this.summedVersion = grid.version;
+  }
+
+  // returns whether the blocks are summed for the given grid as it is now
+  boolean isSummed(Grid grid) {
+    return this.summed == grid && this.summedVersion == grid.version;
+  }
+
+  // returns the index of the block holding the pixel at the given step along
+  // a seam in the given direction and the given position across it
+  int blockAt(boolean isHorizontal, int step, int position) {
+    if (isHorizontal) {
+      return (position / this.factor) * this.blockCols + step / this.factor;
+    }
+    return (step / this.factor) * this.blockCols + position / this.factor;
+  }
+
+  // takes the pixels of the given seam, and those whose cost its removal may
+  // change, out of their blocks before the grid removes it, and moves the
+  // first pixel of each block past them into the block before, where it will
+  // be once the grid has closed up the gap
+  // nothing is moved unless the blocks are summed for the grid as it is
+  void leaving(Grid grid, Seam seam) {
+    this.shifting = this.isSummed(grid);
+    if (!this.shifting) {
+      return;
+    }
+    int across = grid.width;
+    if (seam.isHorizontal) {
+      across = grid.height;
+    }
+    // Loops through each step of the seam
+    for (int i = 0; i < seam.path.length; i += 1) {
+      int to = Math.min(across - 1, grid.seamMax(seam, i) + 2);
+      // Loops through the pixels around the seam's, taking them out
+      for (int j = Math.max(0, grid.seamMin(seam, i) - 1); j <= to; j += 1) {
+        this.blocks[this.blockAt(seam.isHorizontal, i, j)] -=
+            grid.costAt(grid.indexAt(seam.isHorizontal, i, j));
+      }
+      // Loops through the first pixel of each block past them
+      for (int j = (to / this.factor + 1) * this.factor; j < across; j += this.factor) {
+        double cost = grid.costAt(grid.indexAt(seam.isHorizontal, i, j));
+        this.blocks[this.blockAt(seam.isHorizontal, i, j)] -= cost;
+        this.blocks[this.blockAt(seam.isHorizontal, i, j - 1)] += cost;
+      }
+    }
+  }
+
+  // puts the pixels around the given seam back into their blocks with their
+  // new costs, once the grid has removed it and updated the energy around it,
+  // so that the blocks are summed for the grid as it is again
+  void removed(Grid grid, Seam seam) {
+    if (!this.shifting) {
+      return;
+    }
+    this.shifting = false;
+    int across = grid.width;
+    if (seam.isHorizontal) {
+      across = grid.height;
+    }
+    // Loops through each step of the seam and the pixels around it
+    for (int i = 0; i < seam.path.length; i += 1) {
+      int to = Math.min(across - 1, grid.seamMax(seam, i) + 1);
+      for (int j = Math.max(0, grid.seamMin(seam, i) - 1); j <= to; j += 1) {
+        this.blocks[this.blockAt(seam.isHorizontal, i, j)] +=
+            grid.costAt(grid.indexAt(seam.isHorizontal, i, j));
+      }
+    }
+    this.summedVersion = grid.version;
+  }
+
+  // returns the mean cost of the pixels of the block at the given step and
+  // cell of blocks of a seam of the given length, so that a block cut short
+  // by the edge of the grid does not look cheaper for having fewer of them
+  double meanAt(boolean isHorizontal, int step, int cell, int length, int across) {
+    int f = this.factor;
+    int pixels = Math.min(f, length - step * f) * Math.min(f, across - cell * f);
+    return this.blocks[this.blockAt(isHorizontal, step * f, cell * f)] / pixels;
+  }
+
+  // returns for each step of a seam of the given length the position the
+  // band is centered on: the line through the middle of each block of the
+  // cheapest seam through the blocks, moving at most one pixel a step
+  int[] coarseCenters(Grid grid, boolean isHorizontal, int length, int across) {
+    int f = this.factor;
+    int steps = (length + f - 1) / f;
+    int cells = (across + f - 1) / f;
+    if (!this.isSummed(grid)) {
+      this.sumBlocks(grid);
+    }
+    if (this.blockWeights == null || this.blockWeights.length < steps * cells) {
+      this.blockWeights = new double[steps * cells];
+      this.blockFrom = new byte[steps * cells];
+    }
+
+    double[] weights = this.blockWeights;
+    byte[] from = this.blockFrom;
+    // Loops through each step of blocks, accumulating from the step before
+    // with the same preferences on ties as the seam table
+    for (int i = 0; i < steps; i += 1) {
+      for (int j = 0; j < cells; j += 1) {
+        int here = i * cells + j;
+        byte came = 0;
+        double min = 0;
+        if (i > 0) {
+          int before = here - cells;
+          min = weights[before];
+          if (j > 0 && weights[before - 1] <= min) {
+            came = -1;
+            min = weights[before - 1];
+          }
+          if (j < cells - 1 && weights[before + 1] < min) {
+            came = 1;
+            min = weights[before + 1];
+          }
+        }
+        weights[here] = min + this.meanAt(isHorizontal, i, j, length, across);
+        from[here] = came;
+      }
+    }
+    int end = 0;
+    int last = (steps - 1) * cells;
+    // Loops through each block of the last step and keeps the cheapest
+    for (int j = 1; j < cells; j += 1) {
+      if (weights[last + j] < weights[last + end]) {
+        end = j;
+      }
+    }
+    int[] path = new int[steps];
+    // Loops backwards through the steps, following where the seam came from
+    for (int i = steps - 1; i >= 0; i -= 1) {
+      path[i] = end;
+      end += from[i * cells + end];
+    }
+
+    int[] centers = new int[length];
+    // Loops through each step, drawing a line from the middle of one block of
+    // the seam to the middle of the next
+    for (int i = 0; i < length; i += 1) {
+      int block = Math.min(i / f, steps - 1);
+      double middle = path[block] * f + (f - 1) / 2.0;
+      double along = (i - (block * f + (f - 1) / 2.0)) / f;
+      int next = block + 1;
+      if (along < 0) {
+        next = block - 1;
+        along = -along;
+      }
+      double center = middle;
+      if (next >= 0 && next < steps) {
+        center = middle + (path[next] * f + (f - 1) / 2.0 - middle) * along;
+      }
+      centers[i] = (int) Math.max(0, Math.min(across - 1, Math.round(center)));
+    }
+    return centers;
+  }
+
+  // returns the cheapest seam of the given grid that stays within the given
+  // number of pixels either side of the given centers, one for each step
+  Seam refine(Grid grid, boolean isHorizontal, int length, int across, int[] centers,
+      int band) {
+    int span = 2 * band + 1;
+    if (this.bandFrom == null || this.bandFrom.length < length * span) {
+      this.bandFrom = new byte[length * span];
+    }
+    byte[] from = this.bandFrom;
+    double[] previous = new double[span];
+    double[] current = new double[span];
+    int previousStart = 0;
+    int previousEnd = -1;
+    // Loops through each step, accumulating the band from the band before,
+    // where a pixel outside the band before cannot be come from
+    for (int i = 0; i < length; i += 1) {
+      int start = Math.max(0, centers[i] - band);
+      int end = Math.min(across - 1, centers[i] + band);
+      for (int j = start; j <= end; j += 1) {
+        byte came = 0;
+        double min = 0;
+        if (i > 0) {
+          min = Double.POSITIVE_INFINITY;
+          if (j >= previousStart && j <= previousEnd) {
+            min = previous[j - previousStart];
+          }
+          if (j - 1 >= previousStart && j - 1 <= previousEnd
+              && previous[j - 1 - previousStart] <= min) {
+            came = -1;
+            min = previous[j - 1 - previousStart];
+          }
+          if (j + 1 >= previousStart && j + 1 <= previousEnd
+              && previous[j + 1 - previousStart] < min) {
+            came = 1;
+            min = previous[j + 1 - previousStart];
+          }
+        }
+        current[j - start] = min + grid.costAt(grid.indexAt(isHorizontal, i, j));
+        from[i * span + j - start] = came;
+      }
+      double[] swap = previous;
+      previous = current;
+      current = swap;
+      previousStart = start;
+      previousEnd = end;
+    }
+
+    int best = previousStart;
+    // Loops through the band of the last step and keeps the cheapest
+    for (int j = previousStart + 1; j <= previousEnd; j += 1) {
+      if (previous[j - previousStart] < previous[best - previousStart]) {
+        best = j;
+      }
+    }
+    double weight = previous[best - previousStart];
+    int[] path = new int[length];
+    // Loops backwards through the steps, following where the seam came from
+    for (int i = length - 1; i >= 0; i -= 1) {
+      path[i] = best;
+      int start = Math.max(0, centers[i] - band);
+      best += from[i * span + best - start];
+    }
+    return new Seam(isHorizontal, path, weight);
+  }
+
+  // returns whether the given seam touches the edge of the band of the given
+  // width around the given centers anywhere the band does not end at the
+  // edge of the grid, where a cheaper seam may have left it
+  boolean reachesEdge(Seam seam, int across, int[] centers, int band) {
+    // Loops through each step of the seam
+    for (int i = 0; i < seam.path.length; i += 1) {
+      int start = centers[i] - band;
+      int end = centers[i] + band;
+      if (seam.path[i] == start && start > 0 || seam.path[i] == end && end < across - 1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns how often the refined seams differed from the exact ones
+  String report() {
+    if (this.compared == 0) {
+      return this.searches + " seams, " + this.widened + " widened, none compared";
+    }
+    return String.format(
+        "%d seams, %d widened, %d compared, %d differed (%.1f%%), %.1f%% more energy",
+        this.searches, this.widened, this.compared, this.differed,
+        100.0 * this.differed / this.compared,
+        100.0 * this.extraCost / Math.max(this.exactCost, Double.MIN_VALUE));
+  }
+
+}
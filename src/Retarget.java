@@ -0,0 +1,285 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import javax.imageio.ImageIO;
+
+// carves an image to a target size straight through a Grid, with no world,
+// ticks or rendering, removing seams to shrink it and inserting them to grow it
+// it needs none of javalib, so only the compiled classes go on the classpath
+// run as: java Retarget <input> <output> <width>x<height> [columns|greedy|optimal|mapped]
+//                       [backward|forward] [sobel|dual|scharr|int]
+// where the fourth argument picks the order seams are removed in when
+// shrinking:
+//   columns: every vertical seam, then every horizontal one (the default)
+//   greedy:  whichever of the two cheapest seams is cheaper, each time
+//   optimal: the order removing the least total energy, which is slow on
+//            large reductions
+//   mapped:  as columns, but through memory-mapped files rather than a Grid,
+//            for images too large for the heap, which only shrinks, by the
+//            backward sobel energy
+// and the fifth what a seam costs:
+//   backward: the energy of the pixels it removes (the default)
+//   forward:  the energy of the edges its removal makes between the pixels
+//             left on either side of it
+// and the sixth how the energy of a pixel is computed:
+//   sobel:  the sobel gradient of its brightness (the default)
+//   dual:   the differences across it and down it, which is cheaper
+//   scharr: the scharr gradient, which treats every angle of edge alike
+//   int:    the sobel gradient in integers over 8-bit luma
+// an output ending in .seams saves the order every seam in one direction
+// removes the pixels in instead, after which that index is an input that
+// carves to any size in that direction without finding seams again:
+//     java Retarget <input> <index>.seams v|h [seams per pass] [backward|forward]
+//                   [sobel|dual|scharr|int]
+//     java Retarget <index>.seams <output> <width>x<height>
+class Retarget {
+  // whether the seams carved cost their forward energy
+  boolean forwardEnergy;
+  // computes the energy of the pixels of the grids carved
+  IEnergy energy;
+
+  // constructor for Retarget, carving by the sobel energy
+  Retarget() {
+    this.energy = new SobelEnergy();
+  }
+
+  // carves the image named by the arguments and prints each seam removed and
+  // how long it took
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3 || args.length > 6) {
+      System.err.println("usage: java Retarget <input> <output> <width>x<height>"
+          + " [columns|greedy|optimal|mapped] [backward|forward] [sobel|dual|scharr|int]");
+      System.exit(2);
+    }
+    Retarget retarget = new Retarget();
+    if (args.length >= 5) {
+      retarget.forwardEnergy = retarget.parseCost(args[4]);
+    }
+    if (args.length == 6) {
+      retarget.energy = retarget.parseEnergy(args[5]);
+    }
+    if (args[1].endsWith(".seams")) {
+      int seamsPerPass = 1;
+      if (args.length >= 4) {
+        seamsPerPass = Integer.parseInt(args[3]);
+      }
+      long start = System.nanoTime();
+      SeamIndex index = retarget.index(new File(args[0]), new File(args[1]),
+          retarget.parseDirection(args[2]), seamsPerPass);
+      System.out.printf("%s -> %s (%d seams) in %.1f ms%n", args[0], args[1],
+          index.across() - 1, (System.nanoTime() - start) / 1e6);
+      return;
+    }
+    int[] size = retarget.parseSize(args[2]);
+    if (args[0].endsWith(".seams")) {
+      long start = System.nanoTime();
+      retarget.runIndex(new File(args[0]), new File(args[1]), size[0], size[1]);
+      System.out.printf("%s -> %s (%dx%d) in %.1f ms%n", args[0], args[1], size[0], size[1],
+          (System.nanoTime() - start) / 1e6);
+      return;
+    }
+    String order = "columns";
+    if (args.length >= 4) {
+      order = args[3];
+    }
+    long start = System.nanoTime();
+    if (order.equals("mapped")) {
+      int removed = retarget.runMapped(new File(args[0]), new File(args[1]), size[0], size[1]);
+      System.out.printf("%s -> %s (%dx%d, mapped, %d seams) in %.1f ms%n", args[0], args[1],
+          size[0], size[1], removed, (System.nanoTime() - start) / 1e6);
+      return;
+    }
+    ArrayList<Seam> trace = retarget.run(new File(args[0]), new File(args[1]), size[0], size[1],
+        order);
+    long nanos = System.nanoTime() - start;
+    System.out.print(retarget.describe(trace));
+    System.out.printf("%s -> %s (%dx%d, %s) in %.1f ms%n", args[0], args[1], size[0], size[1],
+        order, nanos / 1e6);
+  }
+
+  // returns the width and height written as WIDTHxHEIGHT
+  int[] parseSize(String size) {
+    String[] parts = size.toLowerCase().split("x");
+    if (parts.length != 2) {
+      throw new IllegalArgumentException("size must look like 640x480");
+    }
+    try {
+      return new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()) };
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("size must look like 640x480");
+    }
+  }
+
+  // returns whether the given direction, "v" or "h", is horizontal
+  boolean parseDirection(String dir) {
+    if (dir.equals("h")) {
+      return true;
+    }
+    if (dir.equals("v")) {
+      return false;
+    }
+    throw new IllegalArgumentException("direction must be v or h");
+  }
+
+  // returns whether the given seam cost, "backward" or "forward", is forward
+  boolean parseCost(String cost) {
+    if (cost.equals("forward")) {
+      return true;
+    }
+    if (cost.equals("backward")) {
+      return false;
+    }
+    throw new IllegalArgumentException("cost must be backward or forward");
+  }
+
+  // returns the energy function with the given name: "sobel", "dual",
+  // "scharr" or "int"
+  IEnergy parseEnergy(String name) {
+    if (name.equals("sobel")) {
+      return new SobelEnergy();
+    }
+    if (name.equals("dual")) {
+      return new DualGradientEnergy();
+    }
+    if (name.equals("scharr")) {
+      return new ScharrEnergy();
+    }
+    if (name.equals("int")) {
+      return new IntSobelEnergy();
+    }
+    throw new IllegalArgumentException("energy must be sobel, dual, scharr or int");
+  }
+
+  // loads the given image into a grid, whose energy and seams are computed
+  // the way this carves by
+  Grid load(File input) throws IOException {
+    Grid grid = new ImageLoader().load(input);
+    if (!grid.energyFunction.name().equals(this.energy.name())) {
+      grid.useEnergy(this.energy);
+    }
+    grid.useForwardEnergy(this.forwardEnergy);
+    // a retargeted image is never put back, so its seams are not kept
+    grid.useJournal(false);
+    return grid;
+  }
+
+  // saves the given grid to the given file, in the format named by its extension
+  void save(Grid grid, File output) throws IOException {
+    this.save(grid.asImage(), output);
+  }
+
+  // saves the given image to the given file, in the format named by its
+  // extension
+  void save(BufferedImage image, File output) throws IOException {
+    String name = output.getName();
+    String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+    if (!ImageIO.write(image, format, output)) {
+      throw new IOException("no writer for ." + format + " files");
+    }
+  }
+
+  // carves the input image to the given size and saves it to the output
+  void run(File input, File output, int width, int height) throws IOException {
+    this.run(input, output, width, height, "columns");
+  }
+
+  // carves the input image to the given size, removing seams in the named
+  // order, saves it to the output, and returns the seams removed and inserted
+  ArrayList<Seam> run(File input, File output, int width, int height, String order)
+      throws IOException {
+    Grid grid = this.load(input);
+    ArrayList<Seam> trace = this.carve(grid, width, height, order);
+    this.save(grid, output);
+    return trace;
+  }
+
+  // carves the input image to the given size through memory-mapped files,
+  // removing every vertical seam and then every horizontal one, saves it to
+  // the output and returns how many seams it removed
+  int runMapped(File input, File output, int width, int height) throws IOException {
+    if (this.forwardEnergy || !this.energy.name().equals("sobel")) {
+      throw new IllegalArgumentException("mapped carving only uses backward sobel energy");
+    }
+    MappedCarver carver = new MappedCarver();
+    try {
+      carver.load(input);
+      int removed = carver.carveTo(width, height);
+      carver.save(output);
+      return removed;
+    }
+    finally {
+      carver.close();
+    }
+  }
+
+  // finds the order the seams in the given direction remove the pixels of the
+  // input image in, the given number of seams per seam table, saves it to the
+  // output and returns it
+  SeamIndex index(File input, File output, boolean isHorizontal, int seamsPerPass)
+      throws IOException {
+    SeamIndex index = this.load(input).buildSeamIndex(isHorizontal, seamsPerPass);
+    index.save(output);
+    return index;
+  }
+
+  // carves the image in the given seam index to the given size, which may only
+  // differ from it in the direction the index was built for, and saves it to
+  // the output
+  void runIndex(File input, File output, int width, int height) throws IOException {
+    SeamIndex index = new SeamIndex(input);
+    if (index.isHorizontal && width == index.width) {
+      this.save(index.toImage(height), output);
+    }
+    else if (!index.isHorizontal && height == index.height) {
+      this.save(index.toImage(width), output);
+    }
+    else {
+      throw new IllegalArgumentException("a seam index only changes the size one way");
+    }
+  }
+
+  // carves the given grid to the given size, removing seams in the named order
+  // where it shrinks and then inserting seams where it grows, and returns the
+  // seams removed and inserted
+  ArrayList<Seam> carve(Grid grid, int width, int height, String order) {
+    int shrinkWidth = Math.min(width, grid.width);
+    int shrinkHeight = Math.min(height, grid.height);
+    ArrayList<Seam> trace;
+    if (order.equals("columns")) {
+      trace = grid.carveTo(shrinkWidth, shrinkHeight);
+    }
+    else if (order.equals("greedy")) {
+      trace = grid.carveGreedy(shrinkWidth, shrinkHeight);
+    }
+    else if (order.equals("optimal")) {
+      trace = grid.carveOptimal(shrinkWidth, shrinkHeight);
+    }
+    else {
+      throw new IllegalArgumentException("order must be columns, greedy or optimal");
+    }
+    trace.addAll(grid.enlargeTo(width, height));
+    return trace;
+  }
+
+  // returns one line for each of the given seams, with its step, direction,
+  // energy and the running total, followed by the total
+  String describe(ArrayList<Seam> trace) {
+    StringBuilder out = new StringBuilder();
+    double total = 0;
+    // Loops through each seam removed, adding up its energy
+    for (int i = 0; i < trace.size(); i += 1) {
+      Seam seam = trace.get(i);
+      total += seam.totalWeight;
+      String dir = "v";
+      if (seam.isHorizontal) {
+        dir = "h";
+      }
+      out.append(String.format("%d %s %.6f %.6f%n", i + 1, dir, seam.totalWeight, total));
+    }
+    out.append(String.format("removed %d seams with total energy %.6f%n", trace.size(), total));
+    return out.toString();
+  }
+
+}
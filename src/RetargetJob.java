@@ -0,0 +1,40 @@
+import java.io.File;
+
+// represents one image to carve and how long carving it took
+class RetargetJob {
+  File input;
+  File output;
+  int width;
+  int height;
+  // the name of the energy function the image is carved by
+  String energy;
+
+  long waitNanos;
+  long loadNanos;
+  long carveNanos;
+  long saveNanos;
+  long totalNanos;
+  // why the job failed, or null if it did not
+  Exception error;
+
+  // constructor for RetargetJob
+  RetargetJob(File input, File output, int width, int height) {
+    this.input = input;
+    this.output = output;
+    this.width = width;
+    this.height = height;
+    this.energy = "sobel";
+  }
+
+  // returns one line describing how this job went
+  String report() {
+    if (this.error != null) {
+      return String.format("FAILED %s: %s", this.input, this.error.getMessage());
+    }
+    return String.format("%s -> %s (%dx%d): wait %.1f ms, load %.1f ms, carve %.1f ms,"
+        + " save %.1f ms, total %.1f ms", this.input, this.output, this.width, this.height,
+        this.waitNanos / 1e6, this.loadNanos / 1e6, this.carveNanos / 1e6, this.saveNanos / 1e6,
+        this.totalNanos / 1e6);
+  }
+
+}
@@ -0,0 +1,55 @@
+// computes the scharr energy of a Grid's pixels from their brightness, which
+// is the sobel energy with the corners weighted 3 and the sides 10, so that
+// it responds more evenly to edges at every angle
+// the weights add up to four times the sobel's, and so do the energies
+// everything outside the grid is black, as it is for the sobel energy
+class ScharrEnergy extends AEnergy {
+
+  // returns the name this function is picked by
+  public String name() {
+    return "scharr";
+  }
+
+  // computes the energy of the pixel at the given row and column
+  public float computeAt(Grid grid, int row, int col) {
+    float topLeft = grid.brightnessAt(row - 1, col - 1);
+    float top = grid.brightnessAt(row - 1, col);
+    float topRight = grid.brightnessAt(row - 1, col + 1);
+    float left = grid.brightnessAt(row, col - 1);
+    float right = grid.brightnessAt(row, col + 1);
+    float bottomLeft = grid.brightnessAt(row + 1, col - 1);
+    float bottom = grid.brightnessAt(row + 1, col);
+    float bottomRight = grid.brightnessAt(row + 1, col + 1);
+    float hEnergy = (3 * topLeft + 10 * left + 3 * bottomLeft)
+        - (3 * topRight + 10 * right + 3 * bottomRight);
+    float vEnergy = (3 * topLeft + 10 * top + 3 * topRight)
+        - (3 * bottomLeft + 10 * bottom + 3 * bottomRight);
+    return (float) Math.sqrt(hEnergy * hEnergy + vEnergy * vEnergy);
+  }
+
+  // computes the energy of the inside of the given row
+  void computeInside(Grid grid, int row) {
+    float[] lum = grid.brightness;
+    float[] energy = grid.energy;
+    int here = grid.index(row, 0);
+    int up = here - grid.stride;
+    int down = here + grid.stride;
+    // Loops through the inside of the row, where every neighbor exists
+    for (int col = 1; col < grid.width - 1; col += 1) {
+      float topLeft = lum[up + col - 1];
+      float top = lum[up + col];
+      float topRight = lum[up + col + 1];
+      float left = lum[here + col - 1];
+      float right = lum[here + col + 1];
+      float bottomLeft = lum[down + col - 1];
+      float bottom = lum[down + col];
+      float bottomRight = lum[down + col + 1];
+      float hEnergy = (3 * topLeft + 10 * left + 3 * bottomLeft)
+          - (3 * topRight + 10 * right + 3 * bottomRight);
+      float vEnergy = (3 * topLeft + 10 * top + 3 * topRight)
+          - (3 * bottomLeft + 10 * bottom + 3 * bottomRight);
+      energy[here + col] = (float) Math.sqrt(hEnergy * hEnergy + vEnergy * vEnergy);
+    }
+  }
+
+}
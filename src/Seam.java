@@ -0,0 +1,20 @@
+// represents a seam through a Grid
+class Seam {
+  boolean isHorizontal;
+  // the column of the seam in each row, or the row of the seam in each column
+  // if it is horizontal
+  int[] path;
+  double totalWeight;
+  // the colors of the seam's pixels, once they are removed or highlighted
+  int[] colors;
+  // where the seam's pixels were in the baseline grid, once they are removed
+  int[] origins;
+
+  // Constructor for seam
+  Seam(boolean isHorizontal, int[] path, double totalWeight) {
+    this.isHorizontal = isHorizontal;
+    this.path = path;
+    this.totalWeight = totalWeight;
+  }
+
+}
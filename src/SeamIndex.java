@@ -0,0 +1,169 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// the order in which the seams in one direction remove the pixels of a grid,
+// found once, so that the grid can be shown at any size in that direction
+// by keeping the pixels removed after that many seams, without finding any
+// seams again
+// each seam removes one pixel from every row (or column), so the pixels of a
+// row ranked at or after the number of seams removed are exactly that row
+// at the smaller size, in order
+class SeamIndex {
+  // the file format's first int, "SIDX", and its version
+  static final int MAGIC = 0x53494458;
+  static final int VERSION = 1;
+
+  boolean isHorizontal;
+  int width;
+  int height;
+  // the color of each pixel of the full grid, row by row
+  int[] colors;
+  // how many seams are removed before each pixel is, row by row, where the
+  // pixels no seam removes rank last
+  int[] order;
+
+  // constructor for SeamIndex, for the given grid with every pixel ranked
+  // last until the seams are found
+  SeamIndex(Grid grid, boolean isHorizontal) {
+    this.isHorizontal = isHorizontal;
+    this.width = grid.width;
+    this.height = grid.height;
+    this.colors = new int[this.width * this.height];
+    this.order = new int[this.width * this.height];
+    // Loops through each row and copies its colors
+    for (int row = 0; row < this.height; row += 1) {
+      System.arraycopy(grid.colors, grid.index(row, 0), this.colors, row * this.width,
+          this.width);
+    }
+    Arrays.fill(this.order, this.across() - 1);
+  }
+
+  // constructor for SeamIndex, reading one saved to the given file
+  SeamIndex(File file) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new InflaterInputStream(new FileInputStream(file)), 1 << 16));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(file + " is not a seam index");
+      }
+      this.isHorizontal = in.readBoolean();
+      this.width = in.readInt();
+      this.height = in.readInt();
+      if (this.width < 1 || this.height < 1) {
+        throw new IOException(file + " is not a seam index");
+      }
+      this.colors = new int[this.width * this.height];
+      this.order = new int[this.width * this.height];
+      // Loops through each pixel and reads its color and rank
+      for (int i = 0; i < this.colors.length; i += 1) {
+        this.colors[i] = in.readInt();
+        this.order[i] = in.readInt();
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  // returns how many pixels each seam crosses over, which is one more than
+  // the number of seams that can be removed
+  int across() {
+    if (this.isHorizontal) {
+      return this.height;
+    }
+    return this.width;
+  }
+
+  // returns the colors of the grid at the given width, or height for
+  // horizontal seams, row by row
+  int[] colorsAt(int size) {
+    if (size < 1 || size > this.across()) {
+      throw new IllegalArgumentException("no such size");
+    }
+    int removed = this.across() - size;
+    int[] out;
+    if (this.isHorizontal) {
+      out = new int[this.width * size];
+      int[] kept = new int[this.width];
+      // Loops through each pixel, moving it up past the removed pixels above
+      for (int row = 0; row < this.height; row += 1) {
+        for (int col = 0; col < this.width; col += 1) {
+          int idx = row * this.width + col;
+          if (this.order[idx] >= removed) {
+            out[kept[col] * this.width + col] = this.colors[idx];
+            kept[col] += 1;
+          }
+        }
+      }
+    }
+    else {
+      out = new int[size * this.height];
+      int at = 0;
+      // Loops through each pixel, keeping it if it is removed after the others
+      for (int idx = 0; idx < this.colors.length; idx += 1) {
+        if (this.order[idx] >= removed) {
+          out[at] = this.colors[idx];
+          at += 1;
+        }
+      }
+    }
+    return out;
+  }
+
+  // returns a new grid of the grid at the given width, or height for
+  // horizontal seams
+  Grid gridAt(int size) {
+    if (this.isHorizontal) {
+      return new Grid(this.colorsAt(size), this.width, size);
+    }
+    return new Grid(this.colorsAt(size), size, this.height);
+  }
+
+  // returns an image of the grid at the given width, or height for horizontal
+  // seams
+  BufferedImage toImage(int size) {
+    int shownWidth = size;
+    int shownHeight = this.height;
+    if (this.isHorizontal) {
+      shownWidth = this.width;
+      shownHeight = size;
+    }
+    BufferedImage image = new BufferedImage(shownWidth, shownHeight,
+        BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, shownWidth, shownHeight, this.colorsAt(size), 0, shownWidth);
+    return image;
+  }
+
+  // writes this index to the given file, deflated
+  void save(File file) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new DeflaterOutputStream(new FileOutputStream(file)), 1 << 16));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeBoolean(this.isHorizontal);
+      out.writeInt(this.width);
+      out.writeInt(this.height);
+      // Loops through each pixel and writes its color and rank
+      for (int i = 0; i < this.colors.length; i += 1) {
+        out.writeInt(this.colors[i]);
+        out.writeInt(this.order[i]);
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+
+}
@@ -0,0 +1,14 @@
+// represents a SeamInfo
+class SeamInfo {
+  Pixel pixel; // the pixel we are currently on
+  double totalWeight;
+  SeamInfo cameFrom; // linkedlist of seams visited so far
+
+  // Constructor for seaminfo
+  SeamInfo(Pixel pixel, double totalWeight, SeamInfo cameFrom) {
+    this.pixel = pixel;
+    this.totalWeight = totalWeight;
+    this.cameFrom = cameFrom;
+  }
+
+}
@@ -0,0 +1,404 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// the seams removed from a Grid, oldest first, kept compactly so that a long
+// session does not hold every removed pixel as objects
+// each seam is encoded as its direction, its first position followed by two
+// bits per step for which way it went, its colors as the change in each
+// channel from the pixel before and the baseline index of each pixel as the
+// change from the one before, then deflated
+// undoing a seam only moves the cursor back, so the seams after the cursor
+// can be redone until a different seam is removed
+// once the encoded seams in memory pass the budget, the oldest are moved to a
+// temporary file, and they come back from it when they are needed
+class SeamJournal {
+  // bytes of encoded seams kept in memory before the oldest spill to disk
+  long budget;
+  // the newest encoded seams, oldest first, after the spilled ones
+  ArrayList<byte[]> resident;
+  long residentBytes;
+
+  // the oldest encoded seams, oldest first, created on the first spill
+  RandomAccessFile spill;
+  File spillFile;
+  // deletes the spill file if the JVM exits before this journal is closed,
+  // and is dropped once it is, unlike File.deleteOnExit, which keeps every
+  // file it is given until the JVM exits
+  Thread cleanup;
+  // where each spilled seam starts in the file
+  long[] spilledOffsets;
+  int spilledCount;
+
+  // how many seams are currently removed; the rest can be redone
+  int cursor;
+
+  // the last seam decoded and its position, so that looking at a seam and
+  // then undoing it does not decode it twice
+  Seam cached;
+  int cachedPosition;
+
+  Deflater deflater;
+  Inflater inflater;
+
+  // constructor for SeamJournal, keeping up to the given number of bytes of
+  // encoded seams in memory
+  SeamJournal(long budget) {
+    this.budget = budget;
+    this.resident = new ArrayList<byte[]>();
+    this.spilledOffsets = new long[16];
+    this.cachedPosition = -1;
+    this.deflater = new Deflater(Deflater.BEST_SPEED);
+    this.inflater = new Inflater();
+  }
+
+  // returns how many seams are currently removed
+  int size() {
+    return this.cursor;
+  }
+
+  // returns how many seams this journal holds, counting those that can be
+  // redone
+  int total() {
+    return this.spilledCount + this.resident.size();
+  }
+
+  // adds the given seam, whose colors are set, as the newest one removed
+  // if it is the seam that would be redone next, the seams after it are kept,
+  // and otherwise they are forgotten
+  // returns whether it was the seam that would be redone next
+  // the seam is only encoded once it is known to be a new one, and the one
+  // that would be redone next was usually just undone, so it is still cached
+  boolean add(Seam seam) {
+    if (this.cursor < this.total() && this.isSame(seam, this.get(this.cursor))) {
+      this.cursor += 1;
+      return true;
+    }
+    byte[] entry = this.encode(seam);
+    this.truncate(this.cursor);
+    this.resident.add(entry);
+    this.residentBytes += entry.length;
+    this.cursor += 1;
+    if (this.residentBytes > this.budget) {
+      // Loops through the oldest seams in memory, moving them to disk until
+      // half of the budget is used
+      int spilled = 0;
+      while (this.residentBytes > this.budget / 2 && spilled < this.resident.size() - 1) {
+        this.spill(this.resident.get(spilled));
+        spilled += 1;
+      }
+      this.resident.subList(0, spilled).clear();
+    }
+    return false;
+  }
+
+  // returns the newest seam removed
+  Seam last() {
+    if (this.cursor == 0) {
+      throw new IllegalArgumentException("no seams to put back");
+    }
+    return this.get(this.cursor - 1);
+  }
+
+  // moves the cursor back past the newest seam removed and returns it, which
+  // is kept so that it can be redone
+  Seam removeLast() {
+    Seam seam = this.last();
+    this.cursor -= 1;
+    return seam;
+  }
+
+  // returns whether the given seams would be encoded alike: the same
+  // direction, weight, path, colors and baseline indexes
+  boolean isSame(Seam seam, Seam other) {
+    return seam.isHorizontal == other.isHorizontal
+        && Double.doubleToLongBits(seam.totalWeight) == Double.doubleToLongBits(other.totalWeight)
+        && Arrays.equals(seam.path, other.path) && Arrays.equals(seam.colors, other.colors)
+        && Arrays.equals(seam.origins, other.origins);
+  }
+
+  // returns the seam that would be redone next
+  Seam next() {
+    if (this.cursor == this.total()) {
+      throw new IllegalArgumentException("no seams to redo");
+    }
+    return this.get(this.cursor);
+  }
+
+  // returns the seam at the given position, counting from the oldest
+  Seam get(int position) {
+    if (position != this.cachedPosition) {
+      this.cached = this.decode(this.entryAt(position));
+      this.cachedPosition = position;
+    }
+    return this.cached;
+  }
+
+  // moves the cursor to the given position, as if the seams before it were
+  // removed and the rest undone
+  void seek(int position) {
+    if (position < 0 || position > this.total()) {
+      throw new IllegalArgumentException("no such step");
+    }
+    this.cursor = position;
+  }
+
+  // removes every seam
+  void clear() {
+    this.truncate(0);
+  }
+
+  // forgets every seam from the given position on
+  void truncate(int position) {
+    if (position < this.spilledCount) {
+      this.resident.clear();
+      this.residentBytes = 0;
+      this.truncateSpill(this.spilledOffsets[position]);
+      this.spilledCount = position;
+    }
+    else {
+      // Loops backwards through the resident seams to forget
+      for (int i = this.resident.size() - 1; i >= position - this.spilledCount; i -= 1) {
+        this.residentBytes -= this.resident.remove(i).length;
+      }
+    }
+    this.cursor = Math.min(this.cursor, position);
+    if (this.cachedPosition >= position) {
+      this.cachedPosition = -1;
+      this.cached = null;
+    }
+  }
+
+  // returns the encoded seam at the given position, counting from the oldest
+  byte[] entryAt(int position) {
+    if (position < this.spilledCount) {
+      return this.readSpilled(position);
+    }
+    return this.resident.get(position - this.spilledCount);
+  }
+
+  // returns the given seam encoded and deflated, with the length before
+  // deflating in its first four bytes
+  byte[] encode(Seam seam) {
+    int length = seam.path.length;
+    int originBytes = 0;
+    if (seam.origins != null) {
+      originBytes = 4 * length;
+    }
+    byte[] raw = new byte[1 + 4 + 8 + 4 + (length + 3) / 4 + 4 * length + originBytes];
+    int at = 0;
+    raw[at] = (byte) ((seam.isHorizontal ? 1 : 0) | (seam.origins != null ? 2 : 0));
+    at = this.putInt(raw, at + 1, length);
+    long weight = Double.doubleToLongBits(seam.totalWeight);
+    at = this.putInt(raw, at, (int) (weight >>> 32));
+    at = this.putInt(raw, at, (int) weight);
+    at = this.putInt(raw, at, seam.path[0]);
+    // Loops through each step after the first, packing which way it went into
+    // two bits
+    for (int i = 1; i < length; i += 1) {
+      int step = seam.path[i] - seam.path[i - 1] + 1;
+      raw[at + (i - 1) / 4] |= (byte) (step << ((i - 1) % 4 * 2));
+    }
+    at += (length + 3) / 4;
+    int previous = 0;
+    // Loops through each color, writing how much each channel changed
+    for (int i = 0; i < length; i += 1) {
+      int color = seam.colors[i];
+      raw[at] = (byte) ((color >>> 24) - (previous >>> 24));
+      raw[at + 1] = (byte) ((color >>> 16) - (previous >>> 16));
+      raw[at + 2] = (byte) ((color >>> 8) - (previous >>> 8));
+      raw[at + 3] = (byte) (color - previous);
+      at += 4;
+      previous = color;
+    }
+    previous = 0;
+    // Loops through each baseline index, if there are any, writing how much it
+    // changed
+    for (int i = 0; originBytes > 0 && i < length; i += 1) {
+      at = this.putInt(raw, at, seam.origins[i] - previous);
+      previous = seam.origins[i];
+    }
+
+    this.deflater.reset();
+    this.deflater.setInput(raw);
+    this.deflater.finish();
+    byte[] out = new byte[4 + raw.length + raw.length / 100 + 64];
+    this.putInt(out, 0, raw.length);
+    int size = 4;
+    // Loops until the deflater has written everything, growing the output if
+    // it runs out of room
+    while (!this.deflater.finished()) {
+      if (size == out.length) {
+        out = Arrays.copyOf(out, out.length * 2);
+      }
+      size += this.deflater.deflate(out, size, out.length - size);
+    }
+    return Arrays.copyOf(out, size);
+  }
+
+  // returns the seam the given entry encodes
+  Seam decode(byte[] entry) {
+    byte[] raw = new byte[this.getInt(entry, 0)];
+    this.inflater.reset();
+    this.inflater.setInput(entry, 4, entry.length - 4);
+    try {
+      int size = 0;
+      // Loops until the whole seam is inflated
+      while (size < raw.length) {
+        int read = this.inflater.inflate(raw, size, raw.length - size);
+        if (read == 0 && (this.inflater.finished() || this.inflater.needsInput())) {
+          throw new IllegalStateException("journal entry is cut short");
+        }
+        size += read;
+      }
+    }
+    catch (DataFormatException e) {
+      throw new IllegalStateException("journal entry is corrupt", e);
+    }
+
+    boolean isHorizontal = (raw[0] & 1) == 1;
+    int length = this.getInt(raw, 1);
+    double weight = Double.longBitsToDouble(
+        ((long) this.getInt(raw, 5) << 32) | (this.getInt(raw, 9) & 0xFFFFFFFFL));
+    int[] path = new int[length];
+    path[0] = this.getInt(raw, 13);
+    int at = 17;
+    // Loops through each step after the first, unpacking which way it went
+    for (int i = 1; i < length; i += 1) {
+      path[i] = path[i - 1] + ((raw[at + (i - 1) / 4] >> ((i - 1) % 4 * 2)) & 3) - 1;
+    }
+    at += (length + 3) / 4;
+    int[] colors = new int[length];
+    int previous = 0;
+    // Loops through each color, adding each channel's change to the one before
+    for (int i = 0; i < length; i += 1) {
+      int alpha = ((previous >>> 24) + raw[at]) & 0xFF;
+      int red = ((previous >>> 16) + raw[at + 1]) & 0xFF;
+      int green = ((previous >>> 8) + raw[at + 2]) & 0xFF;
+      int blue = (previous + raw[at + 3]) & 0xFF;
+      colors[i] = (alpha << 24) | (red << 16) | (green << 8) | blue;
+      at += 4;
+      previous = colors[i];
+    }
+    Seam seam = new Seam(isHorizontal, path, weight);
+    seam.colors = colors;
+    if ((raw[0] & 2) == 2) {
+      seam.origins = new int[length];
+      previous = 0;
+      // Loops through each baseline index, adding its change to the one before
+      for (int i = 0; i < length; i += 1) {
+        seam.origins[i] = previous + this.getInt(raw, at);
+        at += 4;
+        previous = seam.origins[i];
+      }
+    }
+    return seam;
+  }
+
+  // writes the given int into the given bytes at the given position, and
+  // returns the position after it
+  int putInt(byte[] bytes, int at, int value) {
+    bytes[at] = (byte) (value >>> 24);
+    bytes[at + 1] = (byte) (value >>> 16);
+    bytes[at + 2] = (byte) (value >>> 8);
+    bytes[at + 3] = (byte) value;
+    return at + 4;
+  }
+
+  // returns the int written into the given bytes at the given position
+  int getInt(byte[] bytes, int at) {
+    return ((bytes[at] & 0xFF) << 24) | ((bytes[at + 1] & 0xFF) << 16)
+        | ((bytes[at + 2] & 0xFF) << 8) | (bytes[at + 3] & 0xFF);
+  }
+
+  // forgets every seam, closes and deletes the spill file if there is one,
+  // and frees the deflater and inflater, after which this journal can not be
+  // used
+  void close() {
+    this.resident.clear();
+    this.residentBytes = 0;
+    this.spilledCount = 0;
+    this.cursor = 0;
+    this.cached = null;
+    this.cachedPosition = -1;
+    this.deflater.end();
+    this.inflater.end();
+    if (this.spill != null) {
+      try {
+        this.spill.close();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      finally {
+        this.spillFile.delete();
+        this.spill = null;
+        try {
+          Runtime.getRuntime().removeShutdownHook(this.cleanup);
+        }
+        catch (IllegalStateException e) {
+          // the JVM is exiting, and the hook finds the file already deleted
+        }
+      }
+    }
+  }
+
+  // appends the given encoded seam, the oldest in memory, to the spill file
+  void spill(byte[] entry) {
+    this.residentBytes -= entry.length;
+    try {
+      if (this.spill == null) {
+        File file = File.createTempFile("seams", ".journal");
+        this.spillFile = file;
+        this.cleanup = new Thread(() -> file.delete());
+        Runtime.getRuntime().addShutdownHook(this.cleanup);
+        this.spill = new RandomAccessFile(file, "rw");
+      }
+      if (this.spilledCount == this.spilledOffsets.length) {
+        this.spilledOffsets = Arrays.copyOf(this.spilledOffsets, this.spilledCount * 2);
+      }
+      long offset = this.spill.length();
+      this.spill.seek(offset);
+      this.spill.writeInt(entry.length);
+      this.spill.write(entry);
+      this.spilledOffsets[this.spilledCount] = offset;
+      this.spilledCount += 1;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // returns the spilled seam at the given position, still encoded
+  byte[] readSpilled(int position) {
+    try {
+      this.spill.seek(this.spilledOffsets[position]);
+      byte[] entry = new byte[this.spill.readInt()];
+      this.spill.readFully(entry);
+      return entry;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // cuts the spill file off at the given length
+  void truncateSpill(long length) {
+    if (this.spill == null) {
+      return;
+    }
+    try {
+      this.spill.setLength(length);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
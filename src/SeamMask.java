@@ -0,0 +1,111 @@
+// the pixels of a Grid's baseline that seams are kept away from, such as a
+// face or a logo, and the ones they are drawn to, such as a watermark, as two
+// bitsets of one bit per baseline pixel
+// a pixel keeps its baseline index however many seams are removed or put back
+// around it, so the mask never moves with the grid and costs a quarter of a
+// byte per pixel, whatever its shape
+class SeamMask {
+  // one bit per baseline pixel, set where seams are kept away, and where they
+  // are drawn to
+  long[] protect;
+  long[] remove;
+  // how much a masked pixel adds to, or takes from, the cost of a seam through
+  // it, which should be more than any whole seam's energy
+  float weight;
+
+  // constructor for SeamMask, over a baseline of the given number of pixels,
+  // with nothing masked
+  SeamMask(int size, float weight) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size cannot be negative");
+    }
+    if (!(weight > 0)) {
+      throw new IllegalArgumentException("weight must be positive");
+    }
+    this.protect = new long[(size + 63) >>> 6];
+    this.remove = new long[(size + 63) >>> 6];
+    this.weight = weight;
+  }
+
+  // returns whether the given bit of the given bitset is set
+  boolean isSet(long[] bits, int at) {
+    return (bits[at >>> 6] & (1L << at)) != 0;
+  }
+
+  // returns whether the baseline pixel at the given index is protected
+  boolean isProtected(int at) {
+    return this.isSet(this.protect, at);
+  }
+
+  // returns whether the baseline pixel at the given index is to be removed
+  boolean isRemoved(int at) {
+    return this.isSet(this.remove, at);
+  }
+
+  // marks the baseline pixel at the given index: "protect" keeps seams away
+  // from it, "remove" draws seams to it, and "none" clears it
+  void mark(int at, String kind) {
+    long bit = 1L << at;
+    this.protect[at >>> 6] &= ~bit;
+    this.remove[at >>> 6] &= ~bit;
+    if (kind.equals("protect")) {
+      this.protect[at >>> 6] |= bit;
+    }
+    else if (kind.equals("remove")) {
+      this.remove[at >>> 6] |= bit;
+    }
+    else if (!kind.equals("none")) {
+      throw new IllegalArgumentException("mask must be protect, remove or none");
+    }
+  }
+
+  // returns what a seam through the baseline pixel at the given index costs
+  // on top of its energy, which is nothing for a pixel with no baseline index
+  float biasOf(int at) {
+    return this.countOf(at) * this.weight;
+  }
+
+  // returns how many weights a seam through the baseline pixel at the given
+  // index costs on top of its energy: 1 if it is protected, -1 if it is to be
+  // removed, and 0 otherwise or for a pixel with no baseline index
+  int countOf(int at) {
+    if (at < 0) {
+      return 0;
+    }
+    long bit = 1L << at;
+    if ((this.protect[at >>> 6] & bit) != 0) {
+      return 1;
+    }
+    if ((this.remove[at >>> 6] & bit) != 0) {
+      return -1;
+    }
+    return 0;
+  }
+
+  // marks the pixel at the given index as the given mask marks the given old
+  // pixel, or as this mask marks the pixel before it if the old one has no
+  // baseline index, where the pixel is not marked yet
+  // it reads and sets the two bits directly, and writes nothing for a pixel
+  // that is not marked, so carrying a whole mask over to a new baseline makes
+  // nothing per pixel and mostly only reads
+  void carry(SeamMask from, int old, int at) {
+    long protect;
+    long remove;
+    if (old >= 0) {
+      protect = (from.protect[old >>> 6] >>> old) & 1;
+      remove = (from.remove[old >>> 6] >>> old) & 1;
+    }
+    else if (at > 0) {
+      protect = (this.protect[(at - 1) >>> 6] >>> (at - 1)) & 1;
+      remove = (this.remove[(at - 1) >>> 6] >>> (at - 1)) & 1;
+    }
+    else {
+      return;
+    }
+    if ((protect | remove) != 0) {
+      this.protect[at >>> 6] |= protect << at;
+      this.remove[at >>> 6] |= remove << at;
+    }
+  }
+
+}
@@ -0,0 +1,12 @@
+// represents the seam a Grid will remove next, for one version of the grid
+class SeamPlan {
+  Seam seam;
+  int version;
+
+  // Constructor for seamplan
+  SeamPlan(Seam seam, int version) {
+    this.seam = seam;
+    this.version = version;
+  }
+
+}
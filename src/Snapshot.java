@@ -0,0 +1,86 @@
+// what the editor shows of a Grid at one moment: one layer of it as opaque
+// packed colors, row by row, or the seam index it is previewed from
+// it only holds the pixels that changed since the snapshot the editor was
+// shown before it, and says which those are, so that neither filling it nor
+// drawing it goes over the whole grid
+// no one changes a snapshot between its being published and its being given
+// back
+class Snapshot {
+  int[] pixels;
+  // how far apart the rows of pixels are, at least the width
+  int stride;
+  int width;
+  int height;
+  SeamIndex preview;
+  // for each row, the columns from dirtyFrom up to dirtyTo changed, the only
+  // ones whose pixels this holds, where those past the grid's edge are clear
+  int[] dirtyFrom;
+  int[] dirtyTo;
+  // whether every pixel changed, so that this holds them all
+  boolean allDirty;
+
+  // fills this snapshot with the given layer of the given grid, "colors",
+  // "energy" or "seams", where the given changes say it changed, and clears
+  // them, or with the given preview if there is one
+  // a snapshot the editor never took, which is unseen, keeps the changes it
+  // held, since the editor has not been shown them either
+  void fill(Grid grid, String layer, SeamIndex preview, GridView changes, boolean unseen) {
+    this.preview = preview;
+    if (preview != null) {
+      // the grid is not shown while it is previewed, so it is shown whole
+      // once it is again
+      changes.allDirty = true;
+      return;
+    }
+    double max = grid.layerMax(layer);
+    if (max != changes.shownMax) {
+      changes.shownMax = max;
+      changes.allDirty = true;
+    }
+    changes.track(grid.width, grid.height);
+    int rows = changes.dirtyFrom.length;
+    if (this.pixels == null || this.stride < changes.trackedWidth
+        || this.dirtyFrom.length != rows) {
+      this.stride = changes.trackedWidth;
+      this.pixels = new int[this.stride * rows];
+      this.dirtyFrom = new int[rows];
+      this.dirtyTo = new int[rows];
+      changes.allDirty = true;
+    }
+    if (!unseen) {
+      this.allDirty = false;
+      // Loops through each row, forgetting the changes the editor was shown
+      for (int row = 0; row < rows; row += 1) {
+        this.dirtyFrom[row] = Integer.MAX_VALUE;
+        this.dirtyTo[row] = 0;
+      }
+    }
+    this.allDirty = this.allDirty || changes.allDirty;
+    this.width = grid.width;
+    this.height = grid.height;
+    // Loops through each row, copying the columns of it that changed
+    for (int row = 0; row < rows; row += 1) {
+      int from = changes.dirtyFrom[row];
+      int to = changes.dirtyTo[row];
+      if (changes.allDirty) {
+        from = 0;
+        to = this.stride;
+      }
+      if (from < to) {
+        // the columns between the changes kept and the new ones are copied
+        // too, since the editor is shown the whole span
+        this.dirtyFrom[row] = Math.min(this.dirtyFrom[row], from);
+        this.dirtyTo[row] = Math.max(this.dirtyTo[row], to);
+        from = this.dirtyFrom[row];
+        int end = Math.min(this.dirtyTo[row], grid.width);
+        if (row < grid.height && from < end) {
+          grid.copyLayer(layer, row, from, end, this.pixels, row * this.stride + from, max);
+        }
+      }
+      changes.dirtyFrom[row] = Integer.MAX_VALUE;
+      changes.dirtyTo[row] = 0;
+    }
+    changes.allDirty = false;
+  }
+
+}
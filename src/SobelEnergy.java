@@ -0,0 +1,51 @@
+// computes the sobel energy of a Grid's pixels from their brightness, treating
+// everything outside the grid as black, just like a border pixel
+// every pixel is computed with the same float arithmetic, whether it is done
+// on its own, at the edge, or in the unchecked inner loop, so a partial update
+// always agrees with a full pass
+class SobelEnergy extends AEnergy {
+
+  // returns the name this function is picked by
+  public String name() {
+    return "sobel";
+  }
+
+  // computes the energy of the pixel at the given row and column
+  public float computeAt(Grid grid, int row, int col) {
+    float topLeft = grid.brightnessAt(row - 1, col - 1);
+    float top = grid.brightnessAt(row - 1, col);
+    float topRight = grid.brightnessAt(row - 1, col + 1);
+    float left = grid.brightnessAt(row, col - 1);
+    float right = grid.brightnessAt(row, col + 1);
+    float bottomLeft = grid.brightnessAt(row + 1, col - 1);
+    float bottom = grid.brightnessAt(row + 1, col);
+    float bottomRight = grid.brightnessAt(row + 1, col + 1);
+    float hEnergy = (topLeft + 2 * left + bottomLeft) - (topRight + 2 * right + bottomRight);
+    float vEnergy = (topLeft + 2 * top + topRight) - (bottomLeft + 2 * bottom + bottomRight);
+    return (float) Math.sqrt(hEnergy * hEnergy + vEnergy * vEnergy);
+  }
+
+  // computes the energy of the inside of the given row
+  void computeInside(Grid grid, int row) {
+    float[] lum = grid.brightness;
+    float[] energy = grid.energy;
+    int here = grid.index(row, 0);
+    int up = here - grid.stride;
+    int down = here + grid.stride;
+    // Loops through the inside of the row, where every neighbor exists
+    for (int col = 1; col < grid.width - 1; col += 1) {
+      float topLeft = lum[up + col - 1];
+      float top = lum[up + col];
+      float topRight = lum[up + col + 1];
+      float left = lum[here + col - 1];
+      float right = lum[here + col + 1];
+      float bottomLeft = lum[down + col - 1];
+      float bottom = lum[down + col];
+      float bottomRight = lum[down + col + 1];
+      float hEnergy = (topLeft + 2 * left + bottomLeft) - (topRight + 2 * right + bottomRight);
+      float vEnergy = (topLeft + 2 * top + topRight) - (bottomLeft + 2 * bottom + bottomRight);
+      energy[here + col] = (float) Math.sqrt(hEnergy * hEnergy + vEnergy * vEnergy);
+    }
+  }
+
+}